@@ -17,11 +17,15 @@
  */
 package se.kth.news.core;
 
+import java.io.File;
 import se.kth.news.core.leader.LeaderSelectComp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.kth.news.core.leader.LeaderSelectPort;
 import se.kth.news.core.news.NewsComp;
+import se.kth.news.core.news.NewsKCWrapper;
+import se.kth.news.core.news.log.NewsLogComp;
+import se.kth.news.core.news.log.NewsLogPort;
 import se.kth.news.core.news.util.NewsViewComparator;
 import se.kth.news.core.news.util.NewsViewGradientFilter;
 import se.sics.kompics.Channel;
@@ -58,6 +62,8 @@ public class AppMngrComp extends ComponentDefinition {
     //***************************INTERNAL_STATE*********************************
     private Component leaderSelectComp;
     private Component newsComp;
+    //null when persistence is disabled
+    private Component newsLogComp;
     //******************************AUX_STATE***********************************
     private OMngrTGradient.ConnectRequest pendingGradientConnReq;
     //**************************************************************************
@@ -92,6 +98,9 @@ public class AppMngrComp extends ComponentDefinition {
             connectLeaderSelect();
             connectNews();
             trigger(Start.event, leaderSelectComp.control());
+            if (newsLogComp != null) {
+                trigger(Start.event, newsLogComp.control());
+            }
             trigger(Start.event, newsComp.control());
         }
     };
@@ -111,6 +120,15 @@ public class AppMngrComp extends ComponentDefinition {
         connect(newsComp.getNegative(GradientPort.class), extPorts.gradientPort, Channel.TWO_WAY);
         connect(newsComp.getNegative(LeaderSelectPort.class), leaderSelectComp.getPositive(LeaderSelectPort.class), Channel.TWO_WAY);
         connect(newsComp.getPositive(OverlayViewUpdatePort.class), extPorts.viewUpdatePort, Channel.TWO_WAY);
+        NewsKCWrapper newsConfig = new NewsKCWrapper(config());
+        if (newsConfig.persistence) {
+            File baseDir = newsConfig.persistenceFreshRun ? NewsLogComp.runDir(newsConfig.persistenceDir)
+                    : new File(newsConfig.persistenceDir);
+            File logDir = new File(baseDir, "node-" + selfAdr.getId());
+            newsLogComp = create(NewsLogComp.class, new NewsLogComp.Init(selfAdr, logDir));
+            connect(newsLogComp.getNegative(Timer.class), extPorts.timerPort, Channel.TWO_WAY);
+            connect(newsComp.getNegative(NewsLogPort.class), newsLogComp.getPositive(NewsLogPort.class), Channel.TWO_WAY);
+        }
     }
 
     public static class Init extends se.sics.kompics.Init<AppMngrComp> {
@@ -0,0 +1,46 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Spread over the gradient by every node, once per (term, seq). The leader bumps
+ * seq each time it announces itself again. Carries the successor of the leader,
+ * see {@link LeaderHeartbeat}, so that nodes out of reach of the heartbeats
+ * know it too.
+ */
+public class LeaderAnnounce {
+
+    public final KAddress leaderAdr;
+    public final int term;
+    public final int seq;
+    public final KAddress successor;
+
+    public LeaderAnnounce(KAddress leaderAdr, int term, int seq, KAddress successor) {
+        this.leaderAdr = leaderAdr;
+        this.term = term;
+        this.seq = seq;
+        this.successor = successor;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderAnnounce<" + leaderAdr + ", " + term + ", " + seq + ", " + successor + ">";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Sent by the leader to its gradient neighbours and fingers every heartbeat
+ * period, acked to renew its lease. Names the neighbour that takes over if
+ * the leader fails, null if it has none.
+ */
+public class LeaderHeartbeat {
+
+    public final int term;
+    public final int seq;
+    public final KAddress successor;
+
+    public LeaderHeartbeat(int term, int seq, KAddress successor) {
+        this.term = term;
+        this.seq = seq;
+        this.successor = successor;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderHeartbeat<" + term + ", " + seq + ", " + successor + ">";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import se.sics.kompics.config.Config;
+
+/**
+ * Tuning knobs of the leader election, read from the leader block of the config.
+ * Defaults live in reference.conf.
+ */
+public class LeaderKCWrapper {
+
+    public final Config configCore;
+    //number of gradient rounds without a change of neighbours before a node may run
+    public final int stableRounds;
+    //period (ms) at which the leader announces itself again
+    public final long announcePeriod;
+    //a leader not heard of for this long (ms) is forgotten and a new election may start
+    public final long leaderTimeout;
+    //period (ms) of the heartbeats of the leader to its gradient neighbours
+    public final long heartbeatPeriod;
+    //a node that acked a heartbeat (or voted) does not vote for anybody else during this long (ms);
+    //a leader that could not renew its lease from a majority of its neighbours steps down
+    public final long leaseDuration;
+    //suspicion level above which the leader is considered failed, and the failure detector window
+    public final double phiThreshold;
+    public final int phiWindow;
+    //floor (ms) of the standard deviation of the heartbeat intervals, absorbs network jitter
+    public final double phiMinStdDev;
+    //number of shards, a node belongs to shard id % shards and only takes part in the election of its shard
+    public final int shards;
+    //with several shards the voters are the nodes of our shard seen among the gradient neighbours and fingers
+    //over the last shardVoterRounds rounds, at most shardVoters of them; no election with fewer than minShardVoters
+    public final int shardVoters;
+    public final int shardVoterRounds;
+    public final int minShardVoters;
+
+    public LeaderKCWrapper(Config config) {
+        configCore = config;
+        stableRounds = config.getValue("leader.stableRounds", Integer.class);
+        announcePeriod = config.getValue("leader.announcePeriod", Long.class);
+        leaderTimeout = config.getValue("leader.leaderTimeout", Long.class);
+        heartbeatPeriod = config.getValue("leader.heartbeatPeriod", Long.class);
+        leaseDuration = config.getValue("leader.leaseDuration", Long.class);
+        phiThreshold = config.getValue("leader.phiThreshold", Double.class);
+        phiWindow = config.getValue("leader.phiWindow", Integer.class);
+        phiMinStdDev = config.getValue("leader.phiMinStdDev", Double.class);
+        shards = config.getValue("leader.shards", Integer.class);
+        shardVoters = config.getValue("leader.shardVoters", Integer.class);
+        shardVoterRounds = config.getValue("leader.shardVoterRounds", Integer.class);
+        minShardVoters = config.getValue("leader.minShardVoters", Integer.class);
+    }
+}
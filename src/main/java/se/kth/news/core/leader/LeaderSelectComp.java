@@ -17,21 +17,68 @@
  */
 package se.kth.news.core.leader;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import se.kth.news.core.news.util.NewsView;
+import se.kth.news.sim.LeaderStore;
+import se.sics.kompics.ClassMatchedHandler;
 import se.sics.kompics.ComponentDefinition;
 import se.sics.kompics.Handler;
 import se.sics.kompics.Negative;
 import se.sics.kompics.Positive;
 import se.sics.kompics.Start;
 import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.simulator.util.GlobalView;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
 import se.sics.kompics.timer.Timer;
 import se.sics.ktoolbox.gradient.GradientPort;
 import se.sics.ktoolbox.gradient.event.TGradientSample;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
 import se.sics.ktoolbox.util.network.KAddress;
+import se.sics.ktoolbox.util.network.KContentMsg;
+import se.sics.ktoolbox.util.network.KHeader;
+import se.sics.ktoolbox.util.network.basic.BasicContentMsg;
+import se.sics.ktoolbox.util.network.basic.BasicHeader;
+import se.sics.ktoolbox.util.other.Container;
 
 /**
+ * Election over the gradient. A node whose gradient neighbours did not change
+ * for stableRounds rounds, that knows no live leader and that no neighbour or
+ * finger ranks above, proposes itself to its neighbours for the next term. A
+ * majority of accepting neighbours makes it the leader, it then announces
+ * itself and the announcement is spread over the whole gradient. Nodes stick to
+ * the leader they know until it stops announcing itself, however the ranking
+ * moves meanwhile, so the leadership does not flap.
+ * <p>
+ * The leader also sends heartbeats to its gradient neighbours and fingers every
+ * heartbeatPeriod. An ack (like a vote) promises not to vote for anybody else
+ * for leaseDuration, so the leader holds a lease as long as a majority acks,
+ * and steps down when it does not. The nodes that get the heartbeats watch them
+ * with a phi accrual failure detector, and the successor named in the
+ * heartbeats, the best ranked neighbour of the leader, proposes itself as soon
+ * as it suspects the leader and its own promise has run out. Without heartbeats
+ * the leader is still forgotten after leaderTimeout.
+ * <p>
+ * With several shards a node only runs in, votes in and follows the election
+ * of its shard (id % shards). The gradient links few nodes of the same shard,
+ * so the voters are the nodes of the shard seen among the neighbours and
+ * fingers of the last rounds, and nobody runs with fewer than minShardVoters
+ * of them. Announcements of the other shards are relayed so that they reach
+ * the nodes of their shard the gradient does not link directly.
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class LeaderSelectComp extends ComponentDefinition {
@@ -47,36 +94,520 @@ public class LeaderSelectComp extends ComponentDefinition {
     //*******************************EXTERNAL_STATE*****************************
     private KAddress selfAdr;
     //*******************************INTERNAL_STATE*****************************
-    private Comparator viewComparator;
+    private Comparator<NewsView> viewComparator;
+    private LeaderKCWrapper leaderConfig;
+    private NewsView selfView;
+    private int shard;
+    //gradient neighbours and fingers of our shard, and of every shard
+    private List<Container<KAddress, NewsView>> neighbours = new ArrayList<>();
+    private List<Container<KAddress, NewsView>> fingers = new ArrayList<>();
+    private List<Container<KAddress, NewsView>> allNeighbours = new ArrayList<>();
+    private List<Container<KAddress, NewsView>> allFingers = new ArrayList<>();
+    //who we propose to and count votes from: the neighbours, or with shards the nodes of our shard seen lately
+    private List<Container<KAddress, NewsView>> voters = new ArrayList<>();
+    //nodes of our shard by the round they were last seen in, the least recently seen first
+    private LinkedHashMap<Identifier, Container<KAddress, NewsView>> shardPeers = new LinkedHashMap<>();
+    private Map<Identifier, Integer> shardPeerRounds = new HashMap<>();
+    //latest announcement relayed for each other shard
+    private Map<Integer, LeaderAnnounce> otherShards = new HashMap<>();
+    private Set<Identifier> lastNeighbourIds = new HashSet<>();
+    private int stableRounds = 0;
+    private int round = 0;
+    //the leader we follow, null if none or suspected
+    private KAddress leaderAdr;
+    //the leader of the latest term we know, kept while suspected, and the seq of its last heartbeat or announcement
+    private KAddress termLeader;
+    private int leaderTerm = 0;
+    private int leaderSeq = -1;
+    private long lastLeaderContact;
+    private KAddress successor;
+    private PhiAccrualDetector detector;
+    //we promised not to vote for anybody but votedFor in votedTerm, and for nobody else until then
+    private long leaseGrantedUntil = 0;
+    private int votedTerm = 0;
+    private Identifier votedFor;
+    //our pending proposal, -1 if none
+    private int proposalTerm = -1;
+    private long proposalSent;
+    private Set<Identifier> votes = new HashSet<>();
+    private Set<Identifier> rejects = new HashSet<>();
+    private int quorum;
+    private long lastAnnounce;
+    //as leader: our lease, and the heartbeats waiting for a majority of acks, by seq
+    private long leaseExpiry;
+    private TreeMap<Integer, Heartbeat> heartbeats = new TreeMap<>();
+    //****SIMULATION
+    private int msgsSent = 0;
+    private int leaderChanges = 0;
+
+    private static class HeartbeatTimeOut extends Timeout {
+
+        protected HeartbeatTimeOut(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    private static class Heartbeat {
+
+        final long sent;
+        final int quorum;
+        final Set<Identifier> acks = new HashSet<>();
+
+        Heartbeat(long sent, int quorum) {
+            this.sent = sent;
+            this.quorum = quorum;
+        }
+    }
 
     public LeaderSelectComp(Init init) {
         selfAdr = init.selfAdr;
         logPrefix = "<nid:" + selfAdr.getId() + ">";
         LOG.info("{}initiating...", logPrefix);
         
-        viewComparator = viewComparator;
+        viewComparator = init.viewComparator;
+        leaderConfig = new LeaderKCWrapper(config());
+        shard = shardOf(selfAdr);
+        detector = newDetector();
 
         subscribe(handleStart, control);
         subscribe(handleGradientSample, gradientPort);
+        subscribe(handleHeartbeatTimer, timerPort);
+        subscribe(handleProposal, networkPort);
+        subscribe(handleVote, networkPort);
+        subscribe(handleAnnounce, networkPort);
+        subscribe(handleHeartbeat, networkPort);
+        subscribe(handleHeartbeatAck, networkPort);
     }
 
     Handler handleStart = new Handler<Start>() {
         @Override
         public void handle(Start event) {
             LOG.info("{}starting...", logPrefix);
+            SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(leaderConfig.heartbeatPeriod, leaderConfig.heartbeatPeriod);
+            Timeout timeout = new HeartbeatTimeOut(spt);
+            spt.setTimeoutEvent(timeout);
+            trigger(spt, timerPort);
         }
     };
     
+    private PhiAccrualDetector newDetector() {
+        return new PhiAccrualDetector(leaderConfig.phiWindow, leaderConfig.phiMinStdDev, leaderConfig.heartbeatPeriod);
+    }
+    
     Handler handleGradientSample = new Handler<TGradientSample>() {
         @Override
         public void handle(TGradientSample sample) {
-            //LOG.debug("{}neighbours:{}", logPrefix, sample.gradientNeighbours);
-            //LOG.debug("{}fingers:{}", logPrefix, sample.gradientFingers);
-            //LOG.debug("{}local view:{}", logPrefix, sample.selfView);
-            //LOG.debug(sample.selfView.toString());
-            //LOG.debug("{}", sample.getGradientNeighbours());
+            round++;
+            selfView = (NewsView) sample.selfView;
+            allNeighbours = (List<Container<KAddress, NewsView>>) sample.gradientNeighbours;
+            allFingers = (List<Container<KAddress, NewsView>>) sample.gradientFingers;
+            neighbours = sameShard(allNeighbours);
+            fingers = sameShard(allFingers);
+            voters = voters();
+            Set<Identifier> neighbourIds = new HashSet<>();
+            for (Container<KAddress, NewsView> neighbour : neighbours) {
+                neighbourIds.add(neighbour.getSource().getId());
+            }
+            stableRounds = neighbourIds.equals(lastNeighbourIds) ? stableRounds + 1 : 0;
+            lastNeighbourIds = neighbourIds;
+            
+            long now = System.currentTimeMillis();
+            if (isLeader()) {
+                if (now - lastAnnounce >= leaderConfig.announcePeriod) {
+                    announce();
+                }
+                return;
+            }
+            if (leaderAdr != null && now - lastLeaderContact > leaderConfig.leaderTimeout) {
+                LOG.info("{}leader:{} silent for {} ms, forgetting it", logPrefix, leaderAdr, now - lastLeaderContact);
+                changeLeader(null);
+            }
+            if (leaderAdr == null && now > leaseGrantedUntil && stableRounds >= leaderConfig.stableRounds && enoughVoters()
+                    && rankedAbove(selfView, null, voters) && rankedAbove(selfView, null, fingers)) {
+                propose();
+                // only one proposal per stable period
+                stableRounds = 0;
+            }
+        }
+    };
+    
+    Handler handleHeartbeatTimer = new Handler<HeartbeatTimeOut>() {
+        @Override
+        public void handle(HeartbeatTimeOut event) {
+            long now = System.currentTimeMillis();
+            if (isLeader()) {
+                if (now > leaseExpiry) {
+                    LOG.info("{}lease of term:{} lapsed, stepping down", logPrefix, leaderTerm);
+                    heartbeats.clear();
+                    changeLeader(null);
+                    return;
+                }
+                heartbeat(now);
+                return;
+            }
+            if (leaderAdr != null && detector.heard()) {
+                double phi = detector.phi(now);
+                if (phi > leaderConfig.phiThreshold) {
+                    LOG.info("{}suspecting leader:{}, phi:{}", logPrefix, leaderAdr, phi);
+                    changeLeader(null);
+                }
+            }
+            // retried every period until elected or some other leader shows up
+            if (leaderAdr == null && isSelf(successor) && now > leaseGrantedUntil && enoughVoters()) {
+                propose();
+            }
+        }
+    };
+    
+    private int shardOf(KAddress adr) {
+        return ((IntIdentifier) adr.getId()).id % leaderConfig.shards;
+    }
+    
+    private List<Container<KAddress, NewsView>> sameShard(List<Container<KAddress, NewsView>> nodes) {
+        if (leaderConfig.shards == 1) {
+            return nodes;
+        }
+        List<Container<KAddress, NewsView>> slice = new ArrayList<>();
+        for (Container<KAddress, NewsView> node : nodes) {
+            if (shardOf(node.getSource()) == shard) {
+                slice.add(node);
+            }
+        }
+        return slice;
+    }
+    
+    // the neighbours, or the nodes of our shard seen in the last shardVoterRounds rounds, the latest first
+    private List<Container<KAddress, NewsView>> voters() {
+        if (leaderConfig.shards == 1) {
+            return neighbours;
+        }
+        for (Container<KAddress, NewsView> node : fingers) {
+            seenShardPeer(node);
+        }
+        // neighbours last, they are the first picked
+        for (Container<KAddress, NewsView> node : neighbours) {
+            seenShardPeer(node);
+        }
+        Iterator<Identifier> it = shardPeers.keySet().iterator();
+        while (it.hasNext()) {
+            Identifier id = it.next();
+            if (shardPeers.size() <= leaderConfig.shardVoters && round - shardPeerRounds.get(id) < leaderConfig.shardVoterRounds) {
+                break;
+            }
+            it.remove();
+            shardPeerRounds.remove(id);
+        }
+        List<Container<KAddress, NewsView>> latest = new ArrayList<>(shardPeers.values());
+        Collections.reverse(latest);
+        return latest;
+    }
+    
+    private void seenShardPeer(Container<KAddress, NewsView> node) {
+        Identifier id = node.getSource().getId();
+        if (id.equals(selfAdr.getId())) {
+            return;
+        }
+        shardPeers.remove(id);
+        shardPeers.put(id, node);
+        shardPeerRounds.put(id, round);
+    }
+    
+    private boolean enoughVoters() {
+        return !voters.isEmpty() && (leaderConfig.shards == 1 || voters.size() >= leaderConfig.minShardVoters);
+    }
+    
+    private boolean isLeader() {
+        return isSelf(leaderAdr);
+    }
+    
+    private boolean isSelf(KAddress adr) {
+        return adr != null && adr.getId().equals(selfAdr.getId());
+    }
+    
+    private static boolean same(KAddress adr, Identifier id) {
+        return adr != null && adr.getId().equals(id);
+    }
+    
+    // view ranks above every node of nodes, the candidate itself excepted
+    private boolean rankedAbove(NewsView view, Identifier candidate, List<Container<KAddress, NewsView>> nodes) {
+        for (Container<KAddress, NewsView> node : nodes) {
+            if (node.getSource().getId().equals(candidate)) {
+                continue;
+            }
+            if (viewComparator.compare(node.getContent(), view) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void propose() {
+        if (proposalTerm != leaderTerm + 1) {
+            proposalTerm = leaderTerm + 1;
+            votes.clear();
+            rejects.clear();
+        }
+        proposalSent = System.currentTimeMillis();
+        quorum = voters.size() / 2 + 1;
+        LOG.debug("{}proposing myself for term:{} to {} voters", logPrefix, proposalTerm, voters.size());
+        for (Container<KAddress, NewsView> voter : voters) {
+            send(voter.getSource(), new LeaderProposal(proposalTerm, selfView));
+        }
+    }
+    
+    /**
+     * a vote promises, like an ack, not to vote for anybody else for a lease
+     * duration. The successor of a failed leader is accepted without comparing
+     * the views, whoever else the voter follows through announcements only.
+     */
+    ClassMatchedHandler handleProposal = new ClassMatchedHandler<LeaderProposal, KContentMsg<?, ?, LeaderProposal>>() {
+        @Override
+        public void handle(LeaderProposal content, KContentMsg<?, ?, LeaderProposal> context) {
+            long now = System.currentTimeMillis();
+            KAddress candidate = context.getHeader().getSource();
+            boolean promisedHim = votedTerm == content.term && candidate.getId().equals(votedFor);
+            boolean free = (now > leaseGrantedUntil && votedTerm < content.term) || promisedHim;
+            boolean eligible;
+            if (same(successor, candidate.getId())) {
+                eligible = !isLeader() && (leaderAdr == null || !detector.heard());
+            } else {
+                eligible = leaderAdr == null
+                        && (selfView == null || viewComparator.compare(content.view, selfView) > 0)
+                        && rankedAbove(content.view, candidate.getId(), voters);
+            }
+            boolean accept = shardOf(candidate) == shard && content.term > leaderTerm && free && eligible;
+            if (accept) {
+                votedTerm = content.term;
+                votedFor = candidate.getId();
+                leaseGrantedUntil = now + leaderConfig.leaseDuration;
+            }
+            send(candidate, new LeaderVote(content.term, accept));
         }
     };
+    
+    ClassMatchedHandler handleVote = new ClassMatchedHandler<LeaderVote, KContentMsg<?, ?, LeaderVote>>() {
+        @Override
+        public void handle(LeaderVote content, KContentMsg<?, ?, LeaderVote> context) {
+            if (content.term != proposalTerm) {
+                return;
+            }
+            Identifier voter = context.getHeader().getSource().getId();
+            if (!content.accept) {
+                rejects.add(voter);
+                if (rejects.size() > voters.size() - quorum) {
+                    LOG.debug("{}proposal for term:{} rejected", logPrefix, proposalTerm);
+                    proposalTerm = -1;
+                }
+                return;
+            }
+            votes.add(voter);
+            if (votes.size() >= quorum) {
+                LOG.info("{}elected leader for term:{} in round:{}", logPrefix, proposalTerm, round);
+                leaderTerm = proposalTerm;
+                termLeader = selfAdr;
+                leaderSeq = -1;
+                proposalTerm = -1;
+                // the voters promised from when they got the proposal on
+                leaseExpiry = proposalSent + leaderConfig.leaseDuration;
+                heartbeats.clear();
+                changeLeader(selfAdr);
+                // Simulation
+                leaderStore().ElectedTime.put(selfAdr, System.currentTimeMillis());
+                heartbeat(System.currentTimeMillis());
+                announce();
+            }
+        }
+    };
+    
+    // our best ranked voter takes over if we fail
+    private KAddress successor() {
+        Container<KAddress, NewsView> best = null;
+        for (Container<KAddress, NewsView> neighbour : voters) {
+            if (best == null || viewComparator.compare(neighbour.getContent(), best.getContent()) > 0) {
+                best = neighbour;
+            }
+        }
+        return best == null ? null : best.getSource();
+    }
+    
+    private void heartbeat(long now) {
+        leaderSeq++;
+        Set<KAddress> targets = targets(null, voters, fingers);
+        heartbeats.put(leaderSeq, new Heartbeat(now, targets.size() / 2 + 1));
+        // those not acked within a lease duration cannot renew it anymore
+        Iterator<Heartbeat> it = heartbeats.values().iterator();
+        while (it.hasNext() && it.next().sent + leaderConfig.leaseDuration < now) {
+            it.remove();
+        }
+        LeaderHeartbeat hb = new LeaderHeartbeat(leaderTerm, leaderSeq, successor());
+        for (KAddress target : targets) {
+            send(target, hb);
+        }
+    }
+    
+    ClassMatchedHandler handleHeartbeatAck = new ClassMatchedHandler<LeaderHeartbeatAck, KContentMsg<?, ?, LeaderHeartbeatAck>>() {
+        @Override
+        public void handle(LeaderHeartbeatAck content, KContentMsg<?, ?, LeaderHeartbeatAck> context) {
+            if (!isLeader() || content.term != leaderTerm) {
+                return;
+            }
+            Heartbeat hb = heartbeats.get(content.seq);
+            if (hb == null) {
+                return;
+            }
+            hb.acks.add(context.getHeader().getSource().getId());
+            if (hb.acks.size() >= hb.quorum) {
+                leaseExpiry = Math.max(leaseExpiry, hb.sent + leaderConfig.leaseDuration);
+                // older heartbeats would not extend the lease further
+                heartbeats.headMap(content.seq, true).clear();
+            }
+        }
+    };
+    
+    ClassMatchedHandler handleHeartbeat = new ClassMatchedHandler<LeaderHeartbeat, KContentMsg<?, ?, LeaderHeartbeat>>() {
+        @Override
+        public void handle(LeaderHeartbeat content, KContentMsg<?, ?, LeaderHeartbeat> context) {
+            KAddress leader = context.getHeader().getSource();
+            if (!adopt(leader, content.term, content.seq)) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            detector.heartbeat(now);
+            successor = content.successor;
+            leaseGrantedUntil = Math.max(leaseGrantedUntil, now + leaderConfig.leaseDuration);
+            send(leader, new LeaderHeartbeatAck(content.term, content.seq));
+        }
+    };
+    
+    private void announce() {
+        leaderSeq++;
+        lastAnnounce = System.currentTimeMillis();
+        spread(new LeaderAnnounce(selfAdr, leaderTerm, leaderSeq, successor()), null);
+    }
+    
+    ClassMatchedHandler handleAnnounce = new ClassMatchedHandler<LeaderAnnounce, KContentMsg<?, ?, LeaderAnnounce>>() {
+        @Override
+        public void handle(LeaderAnnounce content, KContentMsg<?, ?, LeaderAnnounce> context) {
+            if (shardOf(content.leaderAdr) != shard) {
+                relay(content, context.getHeader().getSource());
+                return;
+            }
+            if (!adopt(content.leaderAdr, content.term, content.seq)) {
+                return;
+            }
+            successor = content.successor;
+            spread(content, context.getHeader().getSource());
+        }
+    };
+    
+    // once per announcement, the latest term and then the highest id of each shard wins as in adopt
+    private void relay(LeaderAnnounce announce, KAddress from) {
+        int announceShard = shardOf(announce.leaderAdr);
+        LeaderAnnounce last = otherShards.get(announceShard);
+        if (last != null && announce.term <= last.term) {
+            int cmp = announce.leaderAdr.getId().compareTo(last.leaderAdr.getId());
+            if (announce.term < last.term || cmp < 0 || (cmp == 0 && announce.seq <= last.seq)) {
+                return;
+            }
+        }
+        otherShards.put(announceShard, announce);
+        spread(announce, from);
+    }
+    
+    /**
+     * the latest term wins; two leaders elected for the same term by disjoint
+     * neighbourhoods are settled by their ids. A suspected leader is followed
+     * again if it turns out alive, unless we voted for a later term meanwhile.
+     * @return false if the heartbeat or announcement is stale
+     */
+    private boolean adopt(KAddress leader, int term, int seq) {
+        if (term < leaderTerm || term < votedTerm) {
+            return false;
+        }
+        if (term == leaderTerm && termLeader != null) {
+            int cmp = leader.getId().compareTo(termLeader.getId());
+            if (cmp < 0 || (cmp == 0 && seq <= leaderSeq)) {
+                return false;
+            }
+        }
+        if (proposalTerm > 0 && proposalTerm <= term) {
+            proposalTerm = -1;
+        }
+        leaderTerm = term;
+        termLeader = leader;
+        leaderSeq = seq;
+        lastLeaderContact = System.currentTimeMillis();
+        if (leaderAdr == null || !leaderAdr.getId().equals(leader.getId())) {
+            detector = newDetector();
+            changeLeader(leader);
+        }
+        return true;
+    }
+    
+    // every node of neighbours and fingers, but the one excluded
+    private Set<KAddress> targets(KAddress excluded, List<Container<KAddress, NewsView>> neighbours,
+            List<Container<KAddress, NewsView>> fingers) {
+        Set<Identifier> ids = new HashSet<>();
+        ids.add(selfAdr.getId());
+        if (excluded != null) {
+            ids.add(excluded.getId());
+        }
+        Set<KAddress> targets = new HashSet<>();
+        for (Container<KAddress, NewsView> node : neighbours) {
+            if (ids.add(node.getSource().getId())) {
+                targets.add(node.getSource());
+            }
+        }
+        for (Container<KAddress, NewsView> node : fingers) {
+            if (ids.add(node.getSource().getId())) {
+                targets.add(node.getSource());
+            }
+        }
+        return targets;
+    }
+    
+    // to every gradient neighbour and finger, of any shard, but the one it came from
+    private void spread(LeaderAnnounce announce, KAddress from) {
+        for (KAddress target : targets(from, allNeighbours, allFingers)) {
+            send(target, announce);
+        }
+    }
+    
+    private void changeLeader(KAddress newLeader) {
+        boolean wasLeader = isLeader();
+        leaderAdr = newLeader;
+        trigger(new LeaderUpdate(newLeader, leaderTerm), leaderUpdate);
+        // Simulation
+        leaderChanges++;
+        LeaderStore leaderStore = leaderStore();
+        Long elected = leaderStore.ElectedTime.get(selfAdr);
+        if (wasLeader && !isLeader() && elected != null) {
+            Long led = leaderStore.LeaderMillis.get(selfAdr);
+            leaderStore.LeaderMillis.put(selfAdr, (led == null ? 0 : led) + System.currentTimeMillis() - elected);
+        }
+        if (newLeader == null) {
+            leaderStore.Leader.remove(selfAdr);
+        } else {
+            leaderStore.Leader.put(selfAdr, newLeader);
+        }
+        leaderStore.Round.put(selfAdr, round);
+        leaderStore.Changes.put(selfAdr, leaderChanges);
+        leaderStore.AdoptTime.put(selfAdr, System.currentTimeMillis());
+    }
+    
+    private void send(KAddress target, Object content) {
+        KHeader<KAddress> header = new BasicHeader<KAddress>(selfAdr, target, Transport.UDP);
+        KContentMsg msg = new BasicContentMsg(header, content);
+        trigger(msg, networkPort);
+        // Simulation
+        msgsSent++;
+        leaderStore().Messages.put(selfAdr, msgsSent);
+    }
+    
+    private LeaderStore leaderStore() {
+        GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+        return gv.getValue("simulation.leader", LeaderStore.class);
+    }
 
     public static class Init extends se.sics.kompics.Init<LeaderSelectComp> {
 
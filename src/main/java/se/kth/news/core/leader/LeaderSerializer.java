@@ -0,0 +1,166 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import se.kth.news.core.news.util.NewsView;
+import se.sics.kompics.network.netty.serialization.Serializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Views and addresses go through their registered serializers.
+ */
+public class LeaderSerializer {
+
+    private static abstract class Base implements Serializer {
+
+        private final int id;
+
+        Base(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int identifier() {
+            return id;
+        }
+    }
+
+    public static class Proposal extends Base {
+
+        public Proposal(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            LeaderProposal msg = (LeaderProposal) o;
+            buf.writeInt(msg.term);
+            Serializers.toBinary(msg.view, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = buf.readInt();
+            NewsView view = (NewsView) Serializers.fromBinary(buf, Optional.absent());
+            return new LeaderProposal(term, view);
+        }
+    }
+
+    public static class Vote extends Base {
+
+        public Vote(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            LeaderVote msg = (LeaderVote) o;
+            buf.writeInt(msg.term);
+            buf.writeBoolean(msg.accept);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = buf.readInt();
+            return new LeaderVote(term, buf.readBoolean());
+        }
+    }
+
+    public static class Heartbeat extends Base {
+
+        public Heartbeat(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            LeaderHeartbeat msg = (LeaderHeartbeat) o;
+            buf.writeInt(msg.term);
+            buf.writeInt(msg.seq);
+            buf.writeBoolean(msg.successor != null);
+            if (msg.successor != null) {
+                Serializers.toBinary(msg.successor, buf);
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = buf.readInt();
+            int seq = buf.readInt();
+            KAddress successor = null;
+            if (buf.readBoolean()) {
+                successor = (KAddress) Serializers.fromBinary(buf, Optional.absent());
+            }
+            return new LeaderHeartbeat(term, seq, successor);
+        }
+    }
+
+    public static class HeartbeatAck extends Base {
+
+        public HeartbeatAck(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            LeaderHeartbeatAck msg = (LeaderHeartbeatAck) o;
+            buf.writeInt(msg.term);
+            buf.writeInt(msg.seq);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = buf.readInt();
+            return new LeaderHeartbeatAck(term, buf.readInt());
+        }
+    }
+
+    public static class Announce extends Base {
+
+        public Announce(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            LeaderAnnounce msg = (LeaderAnnounce) o;
+            Serializers.toBinary(msg.leaderAdr, buf);
+            buf.writeInt(msg.term);
+            buf.writeInt(msg.seq);
+            buf.writeBoolean(msg.successor != null);
+            if (msg.successor != null) {
+                Serializers.toBinary(msg.successor, buf);
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            KAddress leaderAdr = (KAddress) Serializers.fromBinary(buf, Optional.absent());
+            int term = buf.readInt();
+            int seq = buf.readInt();
+            KAddress successor = null;
+            if (buf.readBoolean()) {
+                successor = (KAddress) Serializers.fromBinary(buf, Optional.absent());
+            }
+            return new LeaderAnnounce(leaderAdr, term, seq, successor);
+        }
+    }
+}
@@ -25,8 +25,11 @@ import se.sics.ktoolbox.util.network.KAddress;
  */
 public class LeaderUpdate implements KompicsEvent {
     public final KAddress leaderAdr;
+    //term the leader was elected in, it fences the log numbering of each leadership
+    public final int term;
     
-    public LeaderUpdate(KAddress leaderAdr) {
+    public LeaderUpdate(KAddress leaderAdr, int term) {
         this.leaderAdr = leaderAdr;
+        this.term = term;
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import java.util.ArrayDeque;
+
+/**
+ * Phi accrual failure detector (Hayashibara et al.). The heartbeat inter-arrival
+ * times are modelled as a normal distribution over a sliding window; phi is
+ * -log10 of the probability that the next heartbeat is still to come after the
+ * time elapsed since the last one. Uses the logistic approximation of the
+ * normal cdf.
+ */
+public class PhiAccrualDetector {
+
+    private final int windowSize;
+    private final double minStdDev;
+    //used until the first interval is known
+    private final long expectedInterval;
+    private final ArrayDeque<Long> intervals = new ArrayDeque<>();
+    private double sum = 0;
+    private double sumSquares = 0;
+    private long lastHeartbeat = -1;
+
+    public PhiAccrualDetector(int windowSize, double minStdDev, long expectedInterval) {
+        this.windowSize = windowSize;
+        this.minStdDev = minStdDev;
+        this.expectedInterval = expectedInterval;
+    }
+
+    public void heartbeat(long now) {
+        if (lastHeartbeat >= 0) {
+            long interval = now - lastHeartbeat;
+            intervals.addLast(interval);
+            sum += interval;
+            sumSquares += (double) interval * interval;
+            if (intervals.size() > windowSize) {
+                long old = intervals.removeFirst();
+                sum -= old;
+                sumSquares -= (double) old * old;
+            }
+        }
+        lastHeartbeat = now;
+    }
+
+    /**
+     * @return the suspicion level, 0 before the first heartbeat
+     */
+    public double phi(long now) {
+        if (lastHeartbeat < 0) {
+            return 0;
+        }
+        double mean;
+        double stdDev;
+        if (intervals.isEmpty()) {
+            mean = expectedInterval;
+            stdDev = expectedInterval / 4.0;
+        } else {
+            mean = sum / intervals.size();
+            stdDev = Math.sqrt(Math.max(sumSquares / intervals.size() - mean * mean, 0));
+        }
+        stdDev = Math.max(stdDev, minStdDev);
+        double elapsed = now - lastHeartbeat;
+        double y = (elapsed - mean) / stdDev;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsed > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public boolean heard() {
+        return lastHeartbeat >= 0;
+    }
+}
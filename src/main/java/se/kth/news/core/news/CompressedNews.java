@@ -0,0 +1,45 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+/**
+ * A bulk news message (batch, anti-entropy delta or catch-up range) deflated
+ * with a dictionary primed from recent titles. The dictionary itself is only
+ * inlined the first time a neighbour is sent a given dictionary, and again after
+ * the neighbour answered with a {@link NewsDictionaryMiss}.
+ */
+public class CompressedNews {
+
+    public final int dictionaryId;
+    //null when the receiver is expected to have the dictionary already
+    public final byte[] dictionary;
+    public final int rawLength;
+    public final byte[] payload;
+
+    public CompressedNews(int dictionaryId, byte[] dictionary, int rawLength, byte[] payload) {
+        this.dictionaryId = dictionaryId;
+        this.dictionary = dictionary;
+        this.rawLength = rawLength;
+        this.payload = payload;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedNews<" + rawLength + "->" + payload.length + " bytes>";
+    }
+}
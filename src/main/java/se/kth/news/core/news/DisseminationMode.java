@@ -0,0 +1,34 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+/**
+ * How a node spreads the news it publishes or accepts.
+ */
+public enum DisseminationMode {
+    //push every item to all croupier neighbours until its ttl runs out
+    FLOOD,
+    //no push, periodic digest exchange with a random croupier neighbour
+    ANTI_ENTROPY,
+    //push to a random subset of the croupier neighbours every round, until the
+    //duplicate feedback makes the node lose interest
+    RUMOUR,
+    //writers submit to the leader, news travel along the tree built over the
+    //tgradient: each node picks its parent among the higher ranked fingers
+    TREE
+}
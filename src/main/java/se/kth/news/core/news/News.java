@@ -1,33 +1,136 @@
 package se.kth.news.core.news;
 
+import java.util.Collections;
+import java.util.List;
+import se.kth.news.core.news.util.ChunkId;
 
 /**
  * A piece of news to spread in the network.
+ * Identity is the writer id and the writer's sequence number packed in a single long,
+ * the title is only carried along for display. The timestamp is set by the writer on publication.
+ * The log sequence number is assigned by the leader, -1 until then.
+ * A large body is not carried along, only the ids of its chunks, which are pulled separately.
+ * The topic is 0 when topics are not used.
  * @author remi
  *
  */
 public class News {
 	
+	private final long id;
 	private final String title;
+	private final long timestamp;
 	private final int ttl;
+	//(leader term, log seq) packed like the id, -1 while unsequenced
+	private final long logPosition;
+	private final List<ChunkId> chunks;
+	private final int topic;
 	
-	public News(String title, int ttl) {
+	public News(long id, String title, long timestamp, int ttl) {
+		this(id, title, timestamp, ttl, -1);
+	}
+	
+	public News(long id, String title, long timestamp, int ttl, long logPosition) {
+		this(id, title, timestamp, ttl, logPosition, Collections.<ChunkId>emptyList());
+	}
+	
+	public News(long id, String title, long timestamp, int ttl, long logPosition, List<ChunkId> chunks) {
+		this(id, title, timestamp, ttl, logPosition, chunks, 0);
+	}
+	
+	public News(long id, String title, long timestamp, int ttl, long logPosition, List<ChunkId> chunks, int topic) {
+		this.id = id;
 		this.title = title;
+		this.timestamp = timestamp;
 		this.ttl = ttl;
+		this.logPosition = logPosition;
+		this.chunks = chunks;
+		this.topic = topic;
+	}
+	
+	public static long newsId(int writerId, int seq) {
+		return ((long) writerId << 32) | (seq & 0xFFFFFFFFL);
+	}
+	
+	public static int writerOf(long newsId) {
+		return (int) (newsId >>> 32);
+	}
+	
+	public static int seqOf(long newsId) {
+		return (int) newsId;
+	}
+	
+	/**
+	 * a new leader numbers from 0 again in its own term, so a log sequence
+	 * number handed out by the previous leader is never reused
+	 */
+	public static long logPosition(int term, int logSeq) {
+		return ((long) term << 32) | (logSeq & 0xFFFFFFFFL);
+	}
+	
+	public static int termOf(long logPosition) {
+		return (int) (logPosition >> 32);
+	}
+	
+	public static int logSeqOf(long logPosition) {
+		return (int) logPosition;
 	}
 	
 	public News copyWithLowerTTL(){
 		if(ttl==0) return null;
-		return new News(title,ttl-1);
+		return new News(id,title,timestamp,ttl-1,logPosition,chunks,topic);
+	}
+	
+	public News withLogSeq(int term, int logSeq){
+		return new News(id,title,timestamp,ttl,logPosition(term, logSeq),chunks,topic);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public int getWriterId() {
+		return writerOf(id);
+	}
+
+	public int getSeq() {
+		return seqOf(id);
 	}
 
 	public String getTitle() {
 		return title;
 	}
 
+	public long getTimestamp() {
+		return timestamp;
+	}
+
 	public int getTtl() {
 		return ttl;
 	}
+
+	public int getLogSeq() {
+		return logSeqOf(logPosition);
+	}
+	
+	public int getLogTerm() {
+		return termOf(logPosition);
+	}
+	
+	public long getLogPosition() {
+		return logPosition;
+	}
+	
+	public List<ChunkId> getChunks() {
+		return chunks;
+	}
+	
+	public boolean hasBody() {
+		return !chunks.isEmpty();
+	}
+	
+	public int getTopic() {
+		return topic;
+	}
 	
 	@Override
 	public boolean equals(Object obj) {
@@ -36,7 +139,7 @@ public class News {
 		if(this == obj) return true;
 		
 		News news = (News) obj;
-		return news.getTitle().equals(title);
+		return news.id == id;
 	}
 
 	@Override
@@ -46,7 +149,7 @@ public class News {
 
 	@Override
 	public int hashCode() {
-		return title.hashCode();
+		return (int) (id ^ (id >>> 32));
 	}
 
 }
@@ -17,20 +17,57 @@
  */
 package se.kth.news.core.news;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.kth.news.core.leader.LeaderSelectPort;
 import se.kth.news.core.leader.LeaderUpdate;
+import se.kth.news.core.news.log.NewsLogAppend;
+import se.kth.news.core.news.log.NewsLogDurable;
+import se.kth.news.core.news.log.NewsLogFailed;
+import se.kth.news.core.news.log.NewsLogPort;
+import se.kth.news.core.news.log.NewsLogRecovered;
+import se.kth.news.core.news.query.LatestNewsQuery;
+import se.kth.news.core.news.query.NewsQuery;
+import se.kth.news.core.news.query.NewsQueryPort;
+import se.kth.news.core.news.query.NewsQueryResult;
+import se.kth.news.core.news.query.TimeRangeNewsQuery;
+import se.kth.news.core.news.query.WriterNewsQuery;
+import se.kth.news.core.news.util.BodyFetcher;
+import se.kth.news.core.news.util.ChunkId;
+import se.kth.news.core.news.util.ChunkStore;
+import se.kth.news.core.news.util.InterestFilter;
+import se.kth.news.core.news.util.KnownNewsTracker;
+import se.kth.news.core.news.util.LogCursor;
+import se.kth.news.core.news.util.NewsCompressor;
+import se.kth.news.core.news.util.NewsStore;
 import se.kth.news.core.news.util.NewsView;
+import se.kth.news.core.news.util.NewsViewComparator;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.kth.news.core.news.util.OrderPipeline;
+import se.kth.news.core.news.util.OutboundBatcher;
+import se.kth.news.core.news.util.OutboundShaper;
+import se.kth.news.core.news.util.ZipfSampler;
 import se.kth.news.play.Ping;
 import se.kth.news.play.Pong;
 import se.kth.news.sim.AmountOfTrafficStore;
+import se.kth.news.sim.DisseminationLatencyStore;
 import se.kth.news.sim.GlobalNewsStore;
+import se.kth.news.sim.JoinStore;
+import se.kth.news.sim.LeaderStore;
+import se.kth.news.sim.PersistenceStore;
+import se.kth.news.sim.ViewStore;
 import se.sics.kompics.ClassMatchedHandler;
 import se.sics.kompics.ComponentDefinition;
 import se.sics.kompics.Handler;
@@ -46,11 +83,13 @@ import se.sics.ktoolbox.croupier.event.CroupierSample;
 import se.sics.ktoolbox.gradient.GradientPort;
 import se.sics.ktoolbox.gradient.event.TGradientSample;
 import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
 import se.sics.ktoolbox.util.network.KAddress;
 import se.sics.ktoolbox.util.network.KContentMsg;
 import se.sics.ktoolbox.util.network.KHeader;
 import se.sics.ktoolbox.util.network.basic.BasicContentMsg;
 import se.sics.ktoolbox.util.network.basic.BasicHeader;
+import se.sics.ktoolbox.util.other.Container;
 import se.sics.ktoolbox.util.overlays.view.OverlayViewUpdate;
 import se.sics.ktoolbox.util.overlays.view.OverlayViewUpdatePort;
 
@@ -68,14 +107,68 @@ public class NewsComp extends ComponentDefinition {
     Positive<CroupierPort> croupierPort = requires(CroupierPort.class);
     Positive<GradientPort> gradientPort = requires(GradientPort.class);
     Positive<LeaderSelectPort> leaderPort = requires(LeaderSelectPort.class);
+    Positive<NewsLogPort> logPort = requires(NewsLogPort.class);
     Negative<OverlayViewUpdatePort> viewUpdatePort = provides(OverlayViewUpdatePort.class);
+    Negative<NewsQueryPort> queryPort = provides(NewsQueryPort.class);
     //*******************************EXTERNAL_STATE*****************************
     private KAddress selfAdr;
+    private int selfId;
     private Identifier gradientOId;
+    private NewsKCWrapper newsConfig;
     //*******************************INTERNAL_STATE*****************************
     private NewsView localNewsView;
+    //the knowledge changed since localNewsView was last sent to the overlays
+    private boolean viewDirty = false;
     private ArrayList<KAddress> currentNeighbours = new ArrayList<KAddress>();
-    private LinkedHashSet<News> newsChain;
+    //croupier neighbours the summary of which shows news we do not have
+    private ArrayList<KAddress> neighboursAhead = new ArrayList<KAddress>();
+    //dedup state, one watermark per writer
+    private NewsWatermarks knownNews;
+    //bodies of the recent news, bounded by the retention config
+    private NewsStore retainedNews;
+    private Random rand;
+    //null when batching is disabled
+    private OutboundBatcher batcher;
+    //rumours this node is still interested in spreading
+    private Map<Long, News> hotRumours = new LinkedHashMap<Long, News>();
+    //news each neighbour already has, so that we do not send them again
+    private KnownNewsTracker neighbourNews;
+    private NewsViewComparator viewComparator = new NewsViewComparator();
+    private KAddress leaderAdr;
+    //tree over the tgradient, parent is null at the root
+    private KAddress treeParent;
+    private Map<Identifier, TreeChild> treeChildren = new HashMap<Identifier, TreeChild>();
+    private List<Container<KAddress, NewsView>> gradientNeighbours = new ArrayList<Container<KAddress, NewsView>>();
+    //position in the leader-sequenced log of each shard
+    private Map<Integer, LogCursor> logCursors = new HashMap<Integer, LogCursor>();
+    //term of our leadership and next log sequence number to hand out in it, in our shard
+    private int logTerm = -1;
+    private int nextLogSeq = 0;
+    //null when the leader numbers each submission on arrival
+    private OrderPipeline orderPipeline;
+    //null when compression is disabled
+    private NewsCompressor compressor;
+    //persistence: nothing is logged until the log has handed back the state it recovered
+    private boolean recovering;
+    private long appendSeq = 0;
+    //append times (ns) of the appends not acknowledged as durable yet, in seq order
+    private ArrayDeque<Long> pendingAppends = new ArrayDeque<Long>();
+    //null when outbound rate limiting is disabled
+    private OutboundShaper shaper;
+    //joining: the snapshot is pulled from one gradient neighbour at a time
+    private boolean snapshotDone;
+    private KAddress snapshotProvider;
+    private long lastSnapshotProgress;
+    //transfers we are serving, by joiner
+    private Map<Identifier, SnapshotSession> snapshotSessions = new HashMap<Identifier, SnapshotSession>();
+    //body chunks we have, by content, and the pulls of the ones we miss
+    private ChunkStore chunkStore;
+    private BodyFetcher bodyFetcher;
+    //topics: what we advertise, what the croupier neighbours advertised
+    private InterestFilter interest;
+    private Map<Identifier, InterestFilter> neighbourInterest = new HashMap<Identifier, InterestFilter>();
+    //null when topics are disabled
+    private ZipfSampler topicSampler;
     
     //****SIMULATION
     private int simulatedNewsCount;
@@ -83,6 +176,17 @@ public class NewsComp extends ComponentDefinition {
     private int newsTimeOut;
     private long writer;
     private Integer msgssent;
+    private long totalLatency;
+    private int deliveries;
+    private long handlerNanos;
+    private int handledNews;
+    private long durableNews;
+    private long durableNanos;
+    private long lostNews;
+    private int fsyncs;
+    private int viewUpdates;
+    private int newsMsgsSent;
+    private int piggybackedNews;
 
     
     private static class  NewsTimeOut extends Timeout{
@@ -91,8 +195,62 @@ public class NewsComp extends ComponentDefinition {
 		}
     }
     
+    private static class AntiEntropyTimeOut extends Timeout{
+		protected AntiEntropyTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class BatchFlushTimeOut extends Timeout{
+		protected BatchFlushTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class RumourTimeOut extends Timeout{
+		protected RumourTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class CatchUpTimeOut extends Timeout{
+		protected CatchUpTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class SnapshotTimeOut extends Timeout{
+		protected SnapshotTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class OutboundTimeOut extends Timeout{
+		protected OutboundTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class ViewUpdateTimeOut extends Timeout{
+		protected ViewUpdateTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
+    private static class BodyTimeOut extends Timeout{
+		protected BodyTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    private static class OrderTimeOut extends Timeout{
+		protected OrderTimeOut(SchedulePeriodicTimeout request) {
+			super(request);
+		}
+    }
+    
     public NewsComp(Init init) {
         selfAdr = init.selfAdr;
+        selfId = ((IntIdentifier) selfAdr.getId()).id;
         logPrefix = "<nid:" + selfAdr.getId() + ">";
         LOG.info("{}initiating...", logPrefix);
         
@@ -104,7 +262,34 @@ public class NewsComp extends ComponentDefinition {
         writer = config().getValue("writer", Long.class);
 
         gradientOId = init.gradientOId;
-        newsChain = new LinkedHashSet<>();
+        newsConfig = new NewsKCWrapper(config());
+        knownNews = new NewsWatermarks();
+        retainedNews = new NewsStore(newsConfig.retentionSize, newsConfig.retentionAge);
+        rand = new Random(config().getValue("system.seed", Long.class));
+        neighbourNews = new KnownNewsTracker(newsConfig.knownNewsPeers, newsConfig.knownNewsPerPeer);
+        if(newsConfig.batchFlushPeriod > 0){
+        	batcher = new OutboundBatcher(newsConfig.batchSize);
+        }
+        if(newsConfig.compression){
+        	compressor = new NewsCompressor(newsConfig.compressionThreshold, newsConfig.compressionDictionaryTitles);
+        }
+        interest = newsConfig.subscriptions.isEmpty() ? InterestFilter.ALL
+        		: InterestFilter.of(newsConfig.subscriptions, newsConfig.interestFilterBits, newsConfig.interestFilterHashes);
+        if(newsConfig.topics > 0){
+        	topicSampler = new ZipfSampler(newsConfig.topics, newsConfig.topicSkew);
+        }
+        chunkStore = new ChunkStore(newsConfig.bodyStoreSize);
+        bodyFetcher = new BodyFetcher(chunkStore, newsConfig.bodyWindow, newsConfig.bodyTimeout, newsConfig.retentionAge);
+        if(newsConfig.leaderSequencing && newsConfig.orderBatchWindow > 0){
+        	orderPipeline = new OrderPipeline(newsConfig.orderBatchSize, newsConfig.orderPipelineDepth, newsConfig.orderTimeout);
+        }
+        recovering = newsConfig.persistence;
+        snapshotDone = !newsConfig.snapshotJoin;
+        if(newsConfig.nodeRate > 0 || newsConfig.neighbourRate > 0){
+        	shaper = new OutboundShaper(newsConfig.nodeRate, newsConfig.nodeBurst, newsConfig.neighbourRate, newsConfig.neighbourBurst,
+        			newsConfig.knownNewsPeers, newsConfig.outboundQueueSize, newsConfig.outboundPolicy, newsConfig.staleExpiry,
+        			System.currentTimeMillis());
+        }
         
         subscribe(handleStart, control);
         subscribe(handleCroupierSample, croupierPort);
@@ -112,6 +297,38 @@ public class NewsComp extends ComponentDefinition {
         subscribe(handleLeader, leaderPort);
         subscribe(handleNews, networkPort);
         subscribe(handleNewsTimer, timerPort);
+        subscribe(handleAntiEntropyTimer, timerPort);
+        subscribe(handleDigest, networkPort);
+        subscribe(handleDelta, networkPort);
+        subscribe(handleBatchFlushTimer, timerPort);
+        subscribe(handleNewsBatch, networkPort);
+        subscribe(handleRumourTimer, timerPort);
+        subscribe(handleFeedback, networkPort);
+        subscribe(handleSubmit, networkPort);
+        subscribe(handleTreeJoin, networkPort);
+        subscribe(handleCatchUpTimer, timerPort);
+        subscribe(handleRangeRequest, networkPort);
+        subscribe(handleRangeResponse, networkPort);
+        subscribe(handleCompressed, networkPort);
+        subscribe(handleDictionaryMiss, networkPort);
+        subscribe(handleSnapshotTimer, timerPort);
+        subscribe(handleOutboundTimer, timerPort);
+        subscribe(handleViewUpdateTimer, timerPort);
+        subscribe(handleBodyTimer, timerPort);
+        subscribe(handleBodyRequest, networkPort);
+        subscribe(handleBodyChunk, networkPort);
+        subscribe(handleOrderTimer, timerPort);
+        subscribe(handleOrderBatch, networkPort);
+        subscribe(handleOrderAck, networkPort);
+        subscribe(handleSnapshotRequest, networkPort);
+        subscribe(handleSnapshotChunk, networkPort);
+        subscribe(handleSnapshotAck, networkPort);
+        subscribe(handleLogRecovered, logPort);
+        subscribe(handleLatestQuery, queryPort);
+        subscribe(handleWriterQuery, queryPort);
+        subscribe(handleTimeRangeQuery, queryPort);
+        subscribe(handleLogDurable, logPort);
+        subscribe(handleLogFailed, logPort);
     }
 
     Handler handleStart = new Handler<Start>() {
@@ -124,6 +341,62 @@ public class NewsComp extends ComponentDefinition {
         		spt.setTimeoutEvent(timeout);
         		trigger(spt, timerPort);
         	}
+        	if(newsConfig.dissemination == DisseminationMode.ANTI_ENTROPY){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.antiEntropyPeriod, newsConfig.antiEntropyPeriod);
+        		Timeout timeout = new AntiEntropyTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(newsConfig.dissemination == DisseminationMode.RUMOUR){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.rumourPeriod, newsConfig.rumourPeriod);
+        		Timeout timeout = new RumourTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(newsConfig.leaderSequencing){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.catchUpPeriod, newsConfig.catchUpPeriod);
+        		Timeout timeout = new CatchUpTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(newsConfig.snapshotJoin){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.snapshotTimeout, newsConfig.snapshotTimeout);
+        		Timeout timeout = new SnapshotTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	long viewFlushPeriod = newsConfig.viewUpdateInterval > 0 ? newsConfig.viewUpdateInterval
+        			: newsConfig.viewUpdateThreshold > 0 ? newsConfig.viewFlushInterval : 0;
+        	if(viewFlushPeriod > 0){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(viewFlushPeriod, viewFlushPeriod);
+        		Timeout timeout = new ViewUpdateTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(newsConfig.bodySize > 0){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.bodyTimeout, newsConfig.bodyTimeout);
+        		Timeout timeout = new BodyTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(orderPipeline != null){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.orderBatchWindow, newsConfig.orderBatchWindow);
+        		Timeout timeout = new OrderTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(shaper != null){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.outboundTick, newsConfig.outboundTick);
+        		Timeout timeout = new OutboundTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
+        	if(batcher != null){
+        		SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.batchFlushPeriod, newsConfig.batchFlushPeriod);
+        		Timeout timeout = new BatchFlushTimeOut(spt);
+        		spt.setTimeoutEvent(timeout);
+        		trigger(spt, timerPort);
+        	}
     		
             updateLocalNewsView();
             
@@ -132,8 +405,13 @@ public class NewsComp extends ComponentDefinition {
         	AmountOfTrafficStore amountOfTraffic= gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
         	
             //Simulation
-            newsStore.Store.put(selfAdr, newsChain);
+            newsStore.Store.put(selfAdr, knownNews);
+            if(!newsConfig.subscriptions.isEmpty()){
+            	newsStore.Subscriptions.put(selfAdr, newsConfig.subscriptions);
+            }
             amountOfTraffic.Store.put(selfAdr, msgssent);
+            JoinStore joinStore = gv.getValue("simulation.join", JoinStore.class);
+            joinStore.JoinTime.put(selfAdr, System.currentTimeMillis());
         }
     };
     
@@ -143,40 +421,593 @@ public class NewsComp extends ComponentDefinition {
     Handler<NewsTimeOut> handleNewsTimer = new Handler<NewsComp.NewsTimeOut>() {
 		@Override
 		public void handle(NewsTimeOut event) {
-			News newNews = new News("News " + simulatedNewsCount + " from " + selfAdr, BASE_TTL);
-			//LOG.debug("{}created new news:{}", logPrefix, newNews.toString());
-			broadcastToNeighbours(newNews);
-			newsChain.add(newNews);
+			GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+			GlobalNewsStore newsStore = gv.getValue("simulation.newsstore", GlobalNewsStore.class);
+			for(int i = 0; i < newsConfig.publishBurst; i++){
+				News newNews = new News(News.newsId(selfId, simulatedNewsCount), "News " + simulatedNewsCount + " from " + selfAdr,
+						System.currentTimeMillis(), BASE_TTL, -1, simulatedBody(), topicSampler == null ? 0 : topicSampler.next(rand));
+				//LOG.debug("{}created new news:{}", logPrefix, newNews.toString());
+				publish(newNews);
+				// Simulation
+				newsStore.Published.put(newNews.getId(), newNews);
+				simulatedNewsCount++;
+			}
 			// Update local news view ?
 			updateLocalNewsView();
-			simulatedNewsCount++;
 		}
 	};
+	
+	// Simulation, bodySize bytes in chunks drawn from a pool of blocks twice the size of a body,
+	// so that items share some chunks like they would share pictures
+	private List<ChunkId> simulatedBody(){
+		if(newsConfig.bodySize <= 0){
+			return Collections.<ChunkId>emptyList();
+		}
+		int nbChunks = (newsConfig.bodySize + newsConfig.bodyChunkSize - 1) / newsConfig.bodyChunkSize;
+		List<ChunkId> chunks = new ArrayList<ChunkId>(nbChunks);
+		for(int i = 0; i < nbChunks; i++){
+			int size = Math.min(newsConfig.bodyChunkSize, newsConfig.bodySize - i * newsConfig.bodyChunkSize);
+			byte[] data = new byte[size];
+			long block = rand.nextInt(2 * nbChunks);
+			new Random((long) selfId << 32 | block << 1 | (size == newsConfig.bodyChunkSize ? 0 : 1)).nextBytes(data);
+			ChunkId id = ChunkId.of(data);
+			chunkStore.put(id, data);
+			chunks.add(id);
+		}
+		return chunks;
+	}
 
+    /**
+     * coalesced: the view goes out right away once the count moved by viewUpdateThreshold
+     * (any change when neither knob is set), smaller changes wait for the next view update tick,
+     * which runs every viewFlushInterval when only the threshold is set
+     */
     private void updateLocalNewsView() {
-        localNewsView = new NewsView(selfAdr.getId(), newsChain.size());
-        //LOG.debug("{}informing overlays of new view of size {}", logPrefix, newsChain.size());
-        trigger(new OverlayViewUpdate.Indication<>(gradientOId, false, localNewsView.copy()), viewUpdatePort);
+        int count = knownNews.count();
+        if (localNewsView == null) {
+            emitLocalNewsView(count);
+            return;
+        }
+        int delta = Math.abs(count - localNewsView.localNewsCount);
+        if (delta == 0) {
+            return;
+        }
+        boolean immediate = newsConfig.viewUpdateInterval == 0 || newsConfig.viewUpdateThreshold > 0;
+        if (immediate && delta >= Math.max(newsConfig.viewUpdateThreshold, 1)) {
+            emitLocalNewsView(count);
+        } else {
+            viewDirty = true;
+        }
+    }
+    
+    private void emitLocalNewsView(int count) {
+        localNewsView = summarizeLocalNews(count);
+        viewDirty = false;
+        //LOG.debug("{}informing overlays of new view of size {}", logPrefix, count);
+        trigger(new OverlayViewUpdate.Indication<>(gradientOId, false, localNewsView), viewUpdatePort);
+        // Simulation
+        viewUpdates++;
+        GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+        ViewStore viewStore = gv.getValue("simulation.view", ViewStore.class);
+        viewStore.ViewUpdates.put(selfAdr, viewUpdates);
+    }
+    
+    // the viewSummaryWriters writers we are furthest with, no summary at all when negative,
+    // plus the piggybackSize most recent news or their ids
+    private NewsView summarizeLocalNews(int count) {
+        List<News> recent = retainedNews.recent(newsConfig.piggybackSize);
+        long[] recentIds = new long[newsConfig.piggybackNews ? 0 : recent.size()];
+        for (int i = 0; i < recentIds.length; i++) {
+            recentIds[i] = recent.get(i).getId();
+        }
+        if (!newsConfig.piggybackNews) {
+            recent = Collections.<News>emptyList();
+        }
+        if (newsConfig.viewSummaryWriters < 0) {
+            return new NewsView(selfAdr.getId(), count, -1, new int[0], new int[0], recentIds, recent, interest);
+        }
+        List<Integer> writers = new ArrayList<Integer>(knownNews.writers());
+        Collections.sort(writers, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer w1, Integer w2) {
+                return Integer.compare(knownNews.position(w2), knownNews.position(w1));
+            }
+        });
+        int size = Math.min(newsConfig.viewSummaryWriters, writers.size());
+        int[] summaryWriters = new int[size];
+        int[] summaryPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            summaryWriters[i] = writers.get(i);
+            summaryPositions[i] = knownNews.position(writers.get(i));
+        }
+        return new NewsView(selfAdr.getId(), count, knownNews.completeness(), summaryWriters, summaryPositions,
+                recentIds, recent, interest);
+    }
+    
+    Handler<ViewUpdateTimeOut> handleViewUpdateTimer = new Handler<NewsComp.ViewUpdateTimeOut>() {
+		@Override
+		public void handle(ViewUpdateTimeOut event) {
+			if(viewDirty){
+				emitLocalNewsView(knownNews.count());
+			}
+		}
+	};
+    
+    /**
+     * @return false if the news is a duplicate
+     */
+    // source is null for our own news
+    private boolean acceptNews(News news, KAddress source){
+    	// before dedup: a writer first keeps its own unsequenced copy, the numbered one comes back later
+    	if(news.getLogSeq() >= 0){
+    		logCursor(shardOf(news)).add(news.getLogPosition());
+    	}
+    	if(!knownNews.add(news.getId())){
+    		// one more neighbour to pull the body from, if we are still pulling it
+    		if(source != null && news.hasBody()){
+    			bodyFetcher.addHolder(news.getId(), source);
+    			pullBodies();
+    		}
+    		return false;
+    	}
+    	// a topic we did not subscribe to is only relayed: not kept, not logged, no body pulled
+    	if(source != null && !interested(news)) return true;
+    	long now = System.currentTimeMillis();
+    	if(source != null && news.hasBody() && bodyFetcher.add(news, source, now)){
+    		pullBodies();
+    	}
+    	retainedNews.add(news, now);
+    	persist(news);
+    	if(compressor != null){
+    		compressor.observeTitle(news.getTitle());
+    	}
+    	if(news.getWriterId() != selfId){
+    		recordLatency(now - news.getTimestamp());
+    	}
+    	return true;
+    }
+    
+    private int shardOf(News news){
+    	return news.getWriterId() % newsConfig.shards;
+    }
+    
+    private LogCursor logCursor(int shard){
+    	return cursorOf(logCursors, shard);
+    }
+    
+    private static LogCursor cursorOf(Map<Integer, LogCursor> cursors, int shard){
+    	LogCursor cursor = cursors.get(shard);
+    	if(cursor == null){
+    		cursor = new LogCursor();
+    		cursors.put(shard, cursor);
+    	}
+    	return cursor;
+    }
+    
+    private boolean interested(News news){
+    	return newsConfig.subscriptions.isEmpty() || newsConfig.subscriptions.contains(news.getTopic());
+    }
+    
+    // neighbours we have no filter from are assumed to take everything
+    private boolean interested(Identifier neighbour, News news){
+    	InterestFilter filter = neighbourInterest.get(neighbour);
+    	return filter == null || filter.matches(news.getTopic());
+    }
+    
+    private void publish(News news){
+    	boolean viaLeader = newsConfig.dissemination == DisseminationMode.TREE || newsConfig.leaderSequencing;
+    	if(viaLeader && leaderAdr != null && !isLeader()){
+    		acceptNews(news, null);
+    		sendTo(leaderAdr, new NewsSubmit(news));
+    		return;
+    	}
+    	if(newsConfig.leaderSequencing && isLeader()){
+    		if(orderPipeline != null){
+    			order(news, null);
+    			return;
+    		}
+    		news = news.withLogSeq(logTerm, nextLogSeq++);
+    	}
+    	acceptNews(news, null);
+    	disseminate(news);
+    }
+    
+    private boolean isLeader(){
+    	return leaderAdr != null && leaderAdr.getId().equals(selfAdr.getId());
+    }
+    
+    private void disseminate(News news){
+    	switch(newsConfig.dissemination){
+    	case FLOOD:
+    		broadcastToNeighbours(news);
+    		break;
+    	case ANTI_ENTROPY:
+    		// pulled by the neighbours on their next digest exchange
+    		break;
+    	case RUMOUR:
+    		hotRumours.put(news.getId(), news);
+    		pushRumour(news);
+    		break;
+    	case TREE:
+    		treeForward(news);
+    		break;
+    	}
+    }
+    
+    // along every tree link the news has not travelled yet, the parent included:
+    // without a leader, or from a writer that is not the root, it still reaches the whole tree
+    private void treeForward(News news){
+    	if(treeParent != null && !neighbourNews.knows(treeParent.getId(), news.getId())){
+    		sendNews(treeParent, news);
+    	}
+    	for(TreeChild child : treeChildren.values()){
+    		if(!neighbourNews.knows(child.adr.getId(), news.getId())){
+    			sendNews(child.adr, news);
+    		}
+    	}
+    }
+    
+    private void pushRumour(News news){
+    	for(KAddress neighbour : randomSubset(neighboursMissing(news), newsConfig.fanout)){
+    		sendNews(neighbour, news);
+    	}
+    }
+    
+    private List<KAddress> randomSubset(List<KAddress> candidates, int n){
+    	if(candidates.size() <= n){
+    		return candidates;
+    	}
+    	Collections.shuffle(candidates, rand);
+    	return candidates.subList(0, n);
     }
     
     private void broadcastToNeighbours(News news){
     	//LOG.debug("{} my neighbours are:{}", logPrefix, currentNeighbours);
-    	for(KAddress neighbour : currentNeighbours ){
-    		KHeader<KAddress> header = new BasicHeader<KAddress>(selfAdr, neighbour, Transport.UDP);
-    		KContentMsg msg = new BasicContentMsg(header, news);
-    		trigger(msg, networkPort);
-    		// Simulation
-    		msgssent++;
-    		increaseAmountofTraffic();
+    	for(KAddress neighbour : neighboursMissing(news)){
+    		sendNews(neighbour, news);
+    	}
+    }
+    
+    private List<KAddress> neighboursMissing(News news){
+    	List<KAddress> missing = new ArrayList<KAddress>(currentNeighbours.size());
+    	for(KAddress neighbour : currentNeighbours){
+    		if(!neighbourNews.knows(neighbour.getId(), news.getId()) && interested(neighbour.getId(), news)){
+    			missing.add(neighbour);
+    		}
+    	}
+    	return missing;
+    }
+    
+    private void sendNews(KAddress target, News news){
+    	if(batcher == null){
+    		sendTo(target, news);
+    		return;
+    	}
+    	OutboundBatcher.Batch full = batcher.add(target, news);
+    	if(full != null){
+    		sendBatch(full);
+    	}
+    }
+    
+    private void sendBatch(OutboundBatcher.Batch batch){
+    	if(batch.news.size() == 1){
+    		sendTo(batch.target, batch.news.get(0));
+    	} else {
+    		sendTo(batch.target, new NewsBatch(batch.news));
     	}
     }
     
+    private void sendTo(KAddress target, Object content){
+    	sendTo(target, content, priorityOf(content));
+    }
+    
+    // every message goes out here, through the rate limiter when it is enabled
+    private void sendTo(KAddress target, Object content, OutboundPriority priority){
+    	long now = System.currentTimeMillis();
+    	if(shaper != null && !shaper.admit(target, priority, now)){
+    		shaper.offer(target, content, priority, now);
+    		updateShaperMetrics();
+    		return;
+    	}
+    	transmit(target, content);
+    }
+    
+    private OutboundPriority priorityOf(Object content){
+    	if(content instanceof News){
+    		return priorityOf((News) content);
+    	}
+    	if(content instanceof NewsBatch){
+    		// a batch goes as fast as its most urgent item
+    		OutboundPriority best = OutboundPriority.STALE;
+    		for(News news : ((NewsBatch) content).news){
+    			OutboundPriority priority = priorityOf(news);
+    			if(priority.ordinal() < best.ordinal()){
+    				best = priority;
+    			}
+    		}
+    		return best;
+    	}
+    	if(content instanceof NewsSubmit || content instanceof NewsOrderBatch){
+    		return OutboundPriority.LOCAL;
+    	}
+    	if(content instanceof NewsDelta || content instanceof NewsRangeResponse || content instanceof NewsSnapshotChunk
+    			|| content instanceof NewsBodyChunk){
+    		return OutboundPriority.REPAIR;
+    	}
+    	return OutboundPriority.CONTROL;
+    }
+    
+    // fresh: younger than freshAge and less than half of its ttl used
+    private OutboundPriority priorityOf(News news){
+    	if(news.getWriterId() == selfId){
+    		return OutboundPriority.LOCAL;
+    	}
+    	boolean young = System.currentTimeMillis() - news.getTimestamp() <= newsConfig.freshAge;
+    	return young && news.getTtl() >= BASE_TTL / 2 ? OutboundPriority.FRESH : OutboundPriority.STALE;
+    }
+    
+    /**
+     * the news in a message count as known to the neighbour only once it leaves,
+     * not while it waits in the rate limiter which may still drop it; batches,
+     * deltas and ranges go through the compression stage when it is enabled.
+     * Body chunks are too large for a datagram
+     */
+    private void transmit(KAddress target, Object content){
+    	for(News news : newsIn(content)){
+    		neighbourNews.record(target.getId(), news.getId());
+    	}
+    	if(compressor != null && (content instanceof NewsBatch || content instanceof NewsDelta
+    			|| content instanceof NewsRangeResponse || content instanceof NewsSnapshotChunk)){
+    		CompressedNews compressed = compressor.compress(target.getId(), content);
+    		updateCompressionMetrics();
+    		if(compressed != null){
+    			content = compressed;
+    		}
+    	}
+    	Transport transport = content instanceof NewsBodyChunk ? Transport.TCP : Transport.UDP;
+    	KHeader<KAddress> header = new BasicHeader<KAddress>(selfAdr, target, transport);
+    	KContentMsg msg = new BasicContentMsg(header, content);
+    	trigger(msg, networkPort);
+    	// Simulation
+    	msgssent++;
+    	if(content instanceof News || content instanceof NewsBatch || content instanceof NewsDelta
+    			|| content instanceof NewsRangeResponse || content instanceof NewsSnapshotChunk || content instanceof CompressedNews
+    			|| content instanceof NewsOrderBatch){
+    		newsMsgsSent++;
+    	}
+    	increaseAmountofTraffic();
+    }
+    
+    private static List<News> newsIn(Object content){
+    	if(content instanceof News){
+    		return Collections.singletonList((News) content);
+    	}
+    	if(content instanceof NewsBatch){
+    		return ((NewsBatch) content).news;
+    	}
+    	if(content instanceof NewsDelta){
+    		return ((NewsDelta) content).news;
+    	}
+    	if(content instanceof NewsRangeResponse){
+    		return ((NewsRangeResponse) content).news;
+    	}
+    	if(content instanceof NewsSnapshotChunk){
+    		return ((NewsSnapshotChunk) content).news;
+    	}
+    	if(content instanceof NewsOrderBatch){
+    		return ((NewsOrderBatch) content).news;
+    	}
+    	return Collections.emptyList();
+    }
+    
+    // retained news not covered by the given watermarks, at most antiEntropyMaxNews of them
+    private List<News> missingFrom(NewsWatermarks watermarks){
+    	return missingFrom(watermarks, newsConfig.antiEntropyMaxNews);
+    }
+    
+    private List<News> missingFrom(NewsWatermarks watermarks, int max){
+    	return missingFrom(watermarks, max, InterestFilter.ALL);
+    }
+    
+    private List<News> missingFrom(NewsWatermarks watermarks, int max, InterestFilter filter){
+    	List<News> missing = new ArrayList<News>();
+    	for(News news : retainedNews){
+    		if(!watermarks.contains(news.getId()) && filter.matches(news.getTopic())){
+    			missing.add(news);
+    			if(missing.size() == max) break;
+    		}
+    	}
+    	return missing;
+    }
+    
+    // handed to the log component, never waits for the disk
+    private void persist(News news){
+    	if(!newsConfig.persistence || recovering) return;
+    	trigger(new NewsLogAppend(appendSeq++, news), logPort);
+    	pendingAppends.addLast(System.nanoTime());
+    }
+    
+    // Simulation, measure the delivery latency
+    private void recordLatency(long latency){
+    	totalLatency += latency;
+    	deliveries++;
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	DisseminationLatencyStore latencyStore = gv.getValue("simulation.latency", DisseminationLatencyStore.class);
+    	latencyStore.TotalLatency.put(selfAdr, totalLatency);
+    	latencyStore.Deliveries.put(selfAdr, deliveries);
+    }
+    
     // Simulation, measure the amount of traffic generated
     private void increaseAmountofTraffic(){
     	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
     	AmountOfTrafficStore amountOfTraffic= gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
     	amountOfTraffic.Store.put(selfAdr, msgssent);
+    	amountOfTraffic.NewsMessages.put(selfAdr, newsMsgsSent);
+    }
+    
+    // Simulation, outbound queue
+    private void updateShaperMetrics(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	AmountOfTrafficStore amountOfTraffic= gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
+    	amountOfTraffic.QueueDepth.put(selfAdr, shaper.depth());
+    	amountOfTraffic.MaxQueueDepth.put(selfAdr, shaper.maxDepth);
+    	amountOfTraffic.Dropped.put(selfAdr, shaper.dropped);
+    	amountOfTraffic.Expired.put(selfAdr, shaper.expired);
     }
+    
+    // Simulation, compression ratio and cpu cost
+    private void updateCompressionMetrics(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	AmountOfTrafficStore amountOfTraffic= gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
+    	amountOfTraffic.RawBytes.put(selfAdr, compressor.rawBytes);
+    	amountOfTraffic.CompressedBytes.put(selfAdr, compressor.compressedBytes);
+    	amountOfTraffic.CompressionNanos.put(selfAdr, compressor.compressionNanos);
+    }
+
+    // Simulation, bytes pulled and saved by content addressing
+    private void updateBodyMetrics(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	AmountOfTrafficStore amountOfTraffic= gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
+    	amountOfTraffic.BodyBytes.put(selfAdr, bodyFetcher.pulledBytes);
+    	amountOfTraffic.BodyDedup.put(selfAdr, bodyFetcher.dedupHits);
+    	amountOfTraffic.BodiesComplete.put(selfAdr, bodyFetcher.completed);
+    	amountOfTraffic.BodiesPending.put(selfAdr, bodyFetcher.pending());
+    	amountOfTraffic.BodyMillis.put(selfAdr, bodyFetcher.completionMillis);
+    }
+
+    // Simulation, leader ordering throughput
+    private void updateOrderMetrics(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	LeaderStore leaderStore = gv.getValue("simulation.leader", LeaderStore.class);
+    	leaderStore.Sequenced.put(selfAdr, orderPipeline.sequenced);
+    	leaderStore.OrderBatches.put(selfAdr, orderPipeline.batches);
+    	leaderStore.OrderCommitted.put(selfAdr, orderPipeline.committed);
+    	leaderStore.OrderCommitMillis.put(selfAdr, orderPipeline.commitMillis);
+    	leaderStore.OrderPending.put(selfAdr, orderPipeline.pending());
+    }
+
+    // Simulation, persistence costs
+    private void updatePersistenceMetrics(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	PersistenceStore persistenceStore = gv.getValue("simulation.persistence", PersistenceStore.class);
+    	persistenceStore.HandlerNanos.put(selfAdr, handlerNanos);
+    	persistenceStore.HandledNews.put(selfAdr, handledNews);
+    	persistenceStore.DurableNews.put(selfAdr, durableNews);
+    	persistenceStore.DurableNanos.put(selfAdr, durableNanos);
+    	persistenceStore.Fsyncs.put(selfAdr, fsyncs);
+    	persistenceStore.LostNews.put(selfAdr, lostNews);
+    }
+    
+    /**
+     * queries : answered from the retained news, at most queryMaxNews per answer
+     */
+    Handler handleLatestQuery = new Handler<LatestNewsQuery>() {
+        @Override
+        public void handle(LatestNewsQuery query) {
+        	retainedNews.evict(System.currentTimeMillis());
+        	answer(query, retainedNews.latest(Math.min(query.n, newsConfig.queryMaxNews)));
+        }
+    };
+    
+    Handler handleWriterQuery = new Handler<WriterNewsQuery>() {
+        @Override
+        public void handle(WriterNewsQuery query) {
+        	retainedNews.evict(System.currentTimeMillis());
+        	answer(query, retainedNews.fromWriter(query.writerId, query.fromSeq, Math.min(query.limit, newsConfig.queryMaxNews)));
+        }
+    };
+    
+    Handler handleTimeRangeQuery = new Handler<TimeRangeNewsQuery>() {
+        @Override
+        public void handle(TimeRangeNewsQuery query) {
+        	retainedNews.evict(System.currentTimeMillis());
+        	answer(query, retainedNews.between(query.from, query.to, Math.min(query.limit, newsConfig.queryMaxNews)));
+        }
+    };
+    
+    private void answer(NewsQuery query, List<News> news){
+    	trigger(new NewsQueryResult(query, news), queryPort);
+    }
+    
+    /**
+     * persistence : take over the state rebuilt from the log, folding in what was accepted meanwhile
+     */
+    Handler handleLogRecovered = new Handler<NewsLogRecovered>() {
+        @Override
+        public void handle(NewsLogRecovered event) {
+        	long now = System.currentTimeMillis();
+        	NewsStore recovered = new NewsStore(newsConfig.retentionSize, newsConfig.retentionAge);
+        	for(News news : event.recent){
+        		recovered.add(news, now);
+        	}
+        	// the log keeps a single cursor, with shards they are rebuilt from the recovered news
+        	// and catch-up asks again for the compacted part
+        	Map<Integer, LogCursor> cursors = new HashMap<Integer, LogCursor>();
+        	if(newsConfig.shards == 1){
+        		cursors.put(0, event.logCursor);
+        	} else {
+        		for(News news : event.recent){
+        			if(news.getLogSeq() >= 0){
+        				cursorOf(cursors, shardOf(news)).add(news.getLogPosition());
+        			}
+        		}
+        	}
+        	List<News> unlogged = new ArrayList<News>();
+        	for(News news : retainedNews){
+        		if(news.getLogSeq() >= 0){
+        			cursorOf(cursors, shardOf(news)).add(news.getLogPosition());
+        		}
+        		if(event.watermarks.add(news.getId())){
+        			recovered.add(news, now);
+        			unlogged.add(news);
+        		}
+        	}
+        	knownNews = event.watermarks;
+        	logCursors = cursors;
+        	retainedNews = recovered;
+        	recovering = false;
+        	for(News news : unlogged){
+        		persist(news);
+        	}
+        	// do not reuse the sequence numbers of the news we published before the restart
+        	if(knownNews.get(selfId) != null){
+        		simulatedNewsCount = Math.max(simulatedNewsCount, knownNews.get(selfId).highest() + 1);
+        	}
+        	LOG.info("{}recovered {} news ({} retained) from the log in {} ms", logPrefix, knownNews.count(),
+        			event.recent.size(), event.recoveryMillis);
+        	// Simulation
+        	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+        	GlobalNewsStore newsStore = gv.getValue("simulation.newsstore", GlobalNewsStore.class);
+        	newsStore.Store.put(selfAdr, knownNews);
+        	updateLocalNewsView();
+        }
+    };
+    
+    Handler handleLogDurable = new Handler<NewsLogDurable>() {
+        @Override
+        public void handle(NewsLogDurable event) {
+        	long now = System.nanoTime();
+        	// appends are acknowledged in order, the first pending one has seq appendSeq - pendingAppends.size()
+        	while(!pendingAppends.isEmpty() && appendSeq - pendingAppends.size() <= event.seq){
+        		durableNanos += now - pendingAppends.pollFirst();
+        		durableNews++;
+        	}
+        	fsyncs++;
+        	updatePersistenceMetrics();
+        }
+    };
+    
+    Handler handleLogFailed = new Handler<NewsLogFailed>() {
+        @Override
+        public void handle(NewsLogFailed event) {
+        	// dropped without counting them as durable, a later ack must not cover them
+        	while(!pendingAppends.isEmpty() && appendSeq - pendingAppends.size() <= event.seq){
+        		pendingAppends.pollFirst();
+        		lostNews++;
+        	}
+        	updatePersistenceMetrics();
+        }
+    };
 
     Handler handleCroupierSample = new Handler<CroupierSample<NewsView>>() {
         @Override
@@ -186,9 +1017,17 @@ public class NewsComp extends ComponentDefinition {
             }
             Iterator<Identifier> it = castSample.publicSample.keySet().iterator();
             currentNeighbours = new ArrayList<KAddress>();
+            neighboursAhead = new ArrayList<KAddress>();
+            neighbourInterest = new HashMap<Identifier, InterestFilter>();
             while(it.hasNext()){
-            	KAddress partner = castSample.publicSample.get(it.next()).getSource();
+            	Container<KAddress, NewsView> sample = castSample.publicSample.get(it.next());
+            	KAddress partner = sample.getSource();
             	currentNeighbours.add(partner);
+            	neighbourInterest.put(partner.getId(), sample.getContent().interest);
+            	boolean missing = receivePiggyback(sample);
+            	if(missing || sample.getContent().aheadOf(knownNews)){
+            		neighboursAhead.add(partner);
+            	}
 //                KHeader header = new BasicHeader(selfAdr, partner, Transport.UDP);
 //                KContentMsg msg = new BasicContentMsg(header, new Ping());
 //                trigger(msg, networkPort);
@@ -200,25 +1039,651 @@ public class NewsComp extends ComponentDefinition {
     Handler handleGradientSample = new Handler<TGradientSample>() {
         @Override
         public void handle(TGradientSample sample) {
+        	gradientNeighbours = (List<Container<KAddress, NewsView>>) sample.gradientNeighbours;
+        	for(Container<KAddress, NewsView> neighbour : gradientNeighbours){
+        		receivePiggyback(neighbour);
+        	}
+        	measureViewStaleness();
+        	if(!snapshotDone && snapshotProvider == null){
+        		requestSnapshot();
+        	}
+        	if(newsConfig.dissemination != DisseminationMode.TREE) return;
+        	treeParent = pickTreeParent((List<Container<KAddress, NewsView>>) sample.gradientFingers, gradientNeighbours);
+        	if(treeParent != null){
+        		sendTo(treeParent, new NewsTreeJoin());
+        	}
+        	expireTreeChildren();
         }
     };
+    
+    /**
+     * the news piggybacked on a shuffled view are accepted without being forwarded, the next shuffles
+     * carry them further; the neighbour is remembered as knowing them so we do not send them again
+     * @return true if the neighbour advertised ids we do not know yet
+     */
+    private boolean receivePiggyback(Container<KAddress, NewsView> sample){
+    	NewsView view = sample.getContent();
+    	Identifier source = sample.getSource().getId();
+    	if(source.equals(selfAdr.getId())) return false;
+    	boolean missing = false;
+    	for(long newsId : view.recentIds){
+    		neighbourNews.record(source, newsId);
+    		if(!knownNews.contains(newsId)){
+    			missing = true;
+    		}
+    	}
+    	boolean updated = false;
+    	for(News news : view.recent){
+    		neighbourNews.record(source, news.getId());
+    		if(acceptNews(news, sample.getSource())){
+    			updated = true;
+    			piggybackedNews++;
+    		}
+    	}
+    	if(updated){
+    		updateLocalNewsView();
+    		// Simulation
+    		GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    		AmountOfTrafficStore amountOfTraffic = gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
+    		amountOfTraffic.Piggybacked.put(selfAdr, piggybackedNews);
+    	}
+    	return missing;
+    }
+    
+    // Simulation, how far the counts advertised by our gradient neighbours are behind what they actually know
+    private void measureViewStaleness(){
+    	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
+    	GlobalNewsStore newsStore = gv.getValue("simulation.newsstore", GlobalNewsStore.class);
+    	ViewStore viewStore = gv.getValue("simulation.view", ViewStore.class);
+    	long staleness = 0;
+    	for(Container<KAddress, NewsView> neighbour : gradientNeighbours){
+    		NewsWatermarks actual = newsStore.Store.get(neighbour.getSource());
+    		if(actual != null){
+    			staleness += Math.abs(actual.count() - neighbour.getContent().localNewsCount);
+    		}
+    	}
+    	viewStore.Staleness.put(selfAdr, staleness);
+    	viewStore.Neighbours.put(selfAdr, gradientNeighbours.size());
+    }
+    
+    // the best ranked finger above us, the best ranked neighbour above us if no finger is, null at the top
+    private KAddress pickTreeParent(List<Container<KAddress, NewsView>> fingers, List<Container<KAddress, NewsView>> neighbours){
+    	Container<KAddress, NewsView> best = bestAboveSelf(fingers);
+    	if(best == null){
+    		best = bestAboveSelf(neighbours);
+    	}
+    	return best == null ? null : best.getSource();
+    }
+    
+    private Container<KAddress, NewsView> bestAboveSelf(List<Container<KAddress, NewsView>> candidates){
+    	Container<KAddress, NewsView> best = null;
+    	for(Container<KAddress, NewsView> candidate : candidates){
+    		if(viewComparator.compare(candidate.getContent(), localNewsView) <= 0) continue;
+    		if(best == null || viewComparator.compare(candidate.getContent(), best.getContent()) > 0){
+    			best = candidate;
+    		}
+    	}
+    	return best;
+    }
+    
+    private void expireTreeChildren(){
+    	long now = System.currentTimeMillis();
+    	Iterator<TreeChild> it = treeChildren.values().iterator();
+    	while(it.hasNext()){
+    		if(now - it.next().lastJoin > newsConfig.treeChildTimeout){
+    			it.remove();
+    		}
+    	}
+    }
 
     Handler handleLeader = new Handler<LeaderUpdate>() {
         @Override
         public void handle(LeaderUpdate event) {
+        	leaderAdr = event.leaderAdr;
+        	if(isLeader()){
+        		if(event.term != logTerm){
+        			// a term of our own: numbering from 0 in it cannot collide with what an earlier
+        			// leader handed out, even with entries of its term we never saw
+        			logTerm = event.term;
+        			nextLogSeq = 0;
+        			if(orderPipeline != null){
+        				for(OrderPipeline.Submission submission : orderPipeline.drain()){
+        					orderPipeline.submit(submission.news, submission.source);
+        				}
+        			}
+        		}
+        	} else if(orderPipeline != null){
+        		// what we did not number yet goes to the new leader, or out unsequenced without one
+        		boolean updated = false;
+        		for(OrderPipeline.Submission submission : orderPipeline.drain()){
+        			if(leaderAdr != null){
+        				sendTo(leaderAdr, new NewsSubmit(submission.news));
+        			} else if(acceptNews(submission.news, submission.source)){
+        				disseminate(submission.news);
+        				updated = true;
+        			}
+        		}
+        		if(updated){
+        			updateLocalNewsView();
+        		}
+        	}
         }
     };
     
     ClassMatchedHandler handleNews = new ClassMatchedHandler<News, KContentMsg<?, ?, News>>() {
 		@Override
 		public void handle(News content, KContentMsg<?, ?, News> context) {
-			if(newsChain.contains(content)) return;
 			//LOG.debug("{} received new news from node {}", logPrefix, context.getHeader().getSource().getId());
-			newsChain.add(content);
-			if(content.getTtl() == 0) return;
-			broadcastToNeighbours(content.copyWithLowerTTL());
-			updateLocalNewsView(); 
-
+			long start = System.nanoTime();
+			if(receiveNews(content, context.getHeader().getSource())){
+				updateLocalNewsView();
+			} else if(newsConfig.dissemination == DisseminationMode.RUMOUR){
+				sendTo(context.getHeader().getSource(), new NewsFeedback(new long[]{content.getId()}));
+			}
+			if(newsConfig.persistence){
+				handlerNanos += System.nanoTime() - start;
+				handledNews++;
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleNewsBatch = new ClassMatchedHandler<NewsBatch, KContentMsg<?, ?, NewsBatch>>() {
+		@Override
+		public void handle(NewsBatch content, KContentMsg<?, ?, NewsBatch> context) {
+			receiveBatch(content, context.getHeader().getSource());
+		}
+	};
+	
+	private void receiveBatch(NewsBatch content, KAddress source){
+		boolean updated = false;
+		List<Long> duplicates = new ArrayList<Long>();
+		for(News news : content.news){
+			if(receiveNews(news, source)){
+				updated = true;
+			} else {
+				duplicates.add(news.getId());
+			}
+		}
+		if(updated){
+			updateLocalNewsView();
+		}
+		if(newsConfig.dissemination == DisseminationMode.RUMOUR && !duplicates.isEmpty()){
+			long[] ids = new long[duplicates.size()];
+			for(int i = 0; i < ids.length; i++){
+				ids[i] = duplicates.get(i);
+			}
+			sendTo(source, new NewsFeedback(ids));
+		}
+	}
+	
+	/**
+	 * @return false if the news is a duplicate
+	 */
+	private boolean receiveNews(News news, KAddress source){
+		neighbourNews.record(source.getId(), news.getId());
+		if(!acceptNews(news, source)) return false;
+		if(news.getTtl() > 0){
+			disseminate(news.copyWithLowerTTL());
+		}
+		return true;
+	}
+	
+	/**
+	 * joining : ask the best ranked gradient neighbour, another one than the last provider on a retry,
+	 * for the retained news we miss
+	 */
+	private void requestSnapshot(){
+		Container<KAddress, NewsView> best = null;
+		for(Container<KAddress, NewsView> neighbour : gradientNeighbours){
+			if(snapshotProvider != null && neighbour.getSource().getId().equals(snapshotProvider.getId())) continue;
+			if(best == null || viewComparator.compare(neighbour.getContent(), best.getContent()) > 0){
+				best = neighbour;
+			}
+		}
+		if(best == null) return;
+		snapshotProvider = best.getSource();
+		lastSnapshotProgress = System.currentTimeMillis();
+		sendTo(snapshotProvider, new NewsSnapshotRequest(knownNews.copy(), newsConfig.snapshotWindow));
+	}
+	
+	Handler<SnapshotTimeOut> handleSnapshotTimer = new Handler<NewsComp.SnapshotTimeOut>() {
+		@Override
+		public void handle(SnapshotTimeOut event) {
+			long now = System.currentTimeMillis();
+			if(!snapshotDone && snapshotProvider != null && now - lastSnapshotProgress > newsConfig.snapshotTimeout){
+				LOG.debug("{}snapshot from:{} stalled, retrying", logPrefix, snapshotProvider);
+				requestSnapshot();
+			}
+			Iterator<SnapshotSession> it = snapshotSessions.values().iterator();
+			while(it.hasNext()){
+				if(now - it.next().lastAck > newsConfig.snapshotTimeout){
+					it.remove();
+				}
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleSnapshotRequest = new ClassMatchedHandler<NewsSnapshotRequest, KContentMsg<?, ?, NewsSnapshotRequest>>() {
+		@Override
+		public void handle(NewsSnapshotRequest content, KContentMsg<?, ?, NewsSnapshotRequest> context) {
+			KAddress joiner = context.getHeader().getSource();
+			SnapshotSession session = new SnapshotSession(joiner, missingFrom(content.watermarks, newsConfig.snapshotMaxNews),
+					content.window, System.currentTimeMillis());
+			snapshotSessions.put(joiner.getId(), session);
+			sendSnapshotChunks(session);
+		}
+	};
+	
+	ClassMatchedHandler handleSnapshotAck = new ClassMatchedHandler<NewsSnapshotAck, KContentMsg<?, ?, NewsSnapshotAck>>() {
+		@Override
+		public void handle(NewsSnapshotAck content, KContentMsg<?, ?, NewsSnapshotAck> context) {
+			SnapshotSession session = snapshotSessions.get(context.getHeader().getSource().getId());
+			if(session == null) return;
+			session.credit++;
+			session.lastAck = System.currentTimeMillis();
+			sendSnapshotChunks(session);
+		}
+	};
+	
+	// as many chunks as the joiner gave credit for, the last one flagged (and possibly empty)
+	private void sendSnapshotChunks(SnapshotSession session){
+		while(session.credit > 0 && session.nextChunk * newsConfig.snapshotChunkSize <= session.news.size()){
+			int from = session.nextChunk * newsConfig.snapshotChunkSize;
+			int to = Math.min(from + newsConfig.snapshotChunkSize, session.news.size());
+			boolean last = to == session.news.size();
+			List<News> chunk = new ArrayList<News>(session.news.subList(from, to));
+			sendTo(session.joiner, new NewsSnapshotChunk(session.nextChunk, chunk, last));
+			session.nextChunk++;
+			session.credit--;
+			if(last){
+				snapshotSessions.remove(session.joiner.getId());
+				return;
+			}
+		}
+	}
+	
+	ClassMatchedHandler handleSnapshotChunk = new ClassMatchedHandler<NewsSnapshotChunk, KContentMsg<?, ?, NewsSnapshotChunk>>() {
+		@Override
+		public void handle(NewsSnapshotChunk content, KContentMsg<?, ?, NewsSnapshotChunk> context) {
+			receiveSnapshotChunk(content, context.getHeader().getSource());
+		}
+	};
+	
+	// old news, they are kept but not disseminated again
+	private void receiveSnapshotChunk(NewsSnapshotChunk content, KAddress source){
+		boolean updated = false;
+		for(News news : content.news){
+			neighbourNews.record(source.getId(), news.getId());
+			updated |= acceptNews(news, source);
+		}
+		if(updated){
+			updateLocalNewsView();
+		}
+		if(snapshotDone || snapshotProvider == null || !source.getId().equals(snapshotProvider.getId())) return;
+		lastSnapshotProgress = System.currentTimeMillis();
+		if(content.last){
+			snapshotDone = true;
+			LOG.info("{}snapshot from:{} complete, {} news known", logPrefix, source, knownNews.count());
+		} else {
+			sendTo(source, new NewsSnapshotAck(content.chunk));
+		}
+	}
+	
+	/**
+	 * bodies : the news only carry chunk ids, the chunks are pulled from the neighbours
+	 * that sent us the news, spread over them by the fetcher
+	 */
+	private void pullBodies(){
+		Map<KAddress, List<ChunkId>> requests = bodyFetcher.schedule(System.currentTimeMillis());
+		for(Map.Entry<KAddress, List<ChunkId>> request : requests.entrySet()){
+			sendTo(request.getKey(), new NewsBodyRequest(request.getValue()));
+		}
+	}
+	
+	/**
+	 * leader : a full batch is sealed right away, the others when the window
+	 * ends, as long as a slot of the pipeline is free
+	 */
+	private void order(News news, KAddress source){
+		if(orderPipeline.submit(news, source) && orderPipeline.full()){
+			sealBatches(true);
+		}
+	}
+	
+	// every gradient neighbour is a replica, a majority of them commits a batch
+	private void sealBatches(boolean fullOnly){
+		long now = System.currentTimeMillis();
+		int quorum = gradientNeighbours.isEmpty() ? 0 : gradientNeighbours.size() / 2 + 1;
+		boolean updated = false;
+		OrderPipeline.Batch batch;
+		while((!fullOnly || orderPipeline.full()) && (batch = orderPipeline.seal(logTerm, nextLogSeq, quorum, now)) != null){
+			nextLogSeq += batch.submissions.size();
+			NewsOrderBatch msg = new NewsOrderBatch(batch.term, batch.firstLogSeq, batch.news());
+			for(Container<KAddress, NewsView> replica : gradientNeighbours){
+				sendTo(replica.getSource(), msg);
+			}
+			// the replicas the batch already went to are skipped
+			for(OrderPipeline.Submission submission : batch.submissions){
+				if(acceptNews(submission.news, submission.source)){
+					updated = true;
+					disseminate(submission.news);
+				}
+			}
+		}
+		if(updated){
+			updateLocalNewsView();
+		}
+		updateOrderMetrics();
+	}
+	
+	Handler<OrderTimeOut> handleOrderTimer = new Handler<NewsComp.OrderTimeOut>() {
+		@Override
+		public void handle(OrderTimeOut event) {
+			if(!isLeader()) return;
+			orderPipeline.expire(System.currentTimeMillis());
+			sealBatches(false);
+		}
+	};
+	
+	ClassMatchedHandler handleOrderBatch = new ClassMatchedHandler<NewsOrderBatch, KContentMsg<?, ?, NewsOrderBatch>>() {
+		@Override
+		public void handle(NewsOrderBatch content, KContentMsg<?, ?, NewsOrderBatch> context) {
+			KAddress leader = context.getHeader().getSource();
+			boolean updated = false;
+			for(News news : content.news){
+				if(receiveNews(news, leader)){
+					updated = true;
+				}
+			}
+			if(updated){
+				updateLocalNewsView();
+			}
+			sendTo(leader, new NewsOrderAck(content.term, content.firstLogSeq));
+		}
+	};
+	
+	ClassMatchedHandler handleOrderAck = new ClassMatchedHandler<NewsOrderAck, KContentMsg<?, ?, NewsOrderAck>>() {
+		@Override
+		public void handle(NewsOrderAck content, KContentMsg<?, ?, NewsOrderAck> context) {
+			if(orderPipeline == null || !isLeader() || content.term != logTerm) return;
+			if(orderPipeline.ack(content.firstLogSeq, context.getHeader().getSource().getId(), System.currentTimeMillis())){
+				// a slot is free again
+				sealBatches(true);
+			}
+		}
+	};
+	
+	Handler<BodyTimeOut> handleBodyTimer = new Handler<NewsComp.BodyTimeOut>() {
+		@Override
+		public void handle(BodyTimeOut event) {
+			bodyFetcher.expire(System.currentTimeMillis());
+			pullBodies();
+			updateBodyMetrics();
+		}
+	};
+	
+	// a chunk we do not have yet is answered as missing, the requester then asks someone else
+	ClassMatchedHandler handleBodyRequest = new ClassMatchedHandler<NewsBodyRequest, KContentMsg<?, ?, NewsBodyRequest>>() {
+		@Override
+		public void handle(NewsBodyRequest content, KContentMsg<?, ?, NewsBodyRequest> context) {
+			for(ChunkId chunk : content.chunks){
+				sendTo(context.getHeader().getSource(), new NewsBodyChunk(chunk, chunkStore.get(chunk)));
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleBodyChunk = new ClassMatchedHandler<NewsBodyChunk, KContentMsg<?, ?, NewsBodyChunk>>() {
+		@Override
+		public void handle(NewsBodyChunk content, KContentMsg<?, ?, NewsBodyChunk> context) {
+			List<Long> complete = bodyFetcher.received(content.id, content.data, context.getHeader().getSource(),
+					System.currentTimeMillis());
+			if(!complete.isEmpty()){
+				LOG.debug("{}bodies of {} news complete", logPrefix, complete.size());
+				updateBodyMetrics();
+			}
+			// the answer freed a slot of the window of that neighbour
+			pullBodies();
+		}
+	};
+	
+	ClassMatchedHandler handleSubmit = new ClassMatchedHandler<NewsSubmit, KContentMsg<?, ?, NewsSubmit>>() {
+		@Override
+		public void handle(NewsSubmit content, KContentMsg<?, ?, NewsSubmit> context) {
+			News news = content.news;
+			neighbourNews.record(context.getHeader().getSource().getId(), news.getId());
+			// check first, a resubmitted news must not burn a log sequence number
+			if(knownNews.contains(news.getId())) return;
+			if(newsConfig.leaderSequencing && isLeader()){
+				if(orderPipeline != null){
+					order(news, context.getHeader().getSource());
+					return;
+				}
+				news = news.withLogSeq(logTerm, nextLogSeq++);
+			}
+			acceptNews(news, context.getHeader().getSource());
+			updateLocalNewsView();
+			disseminate(news);
+		}
+	};
+	
+	ClassMatchedHandler handleTreeJoin = new ClassMatchedHandler<NewsTreeJoin, KContentMsg<?, ?, NewsTreeJoin>>() {
+		@Override
+		public void handle(NewsTreeJoin content, KContentMsg<?, ?, NewsTreeJoin> context) {
+			KAddress child = context.getHeader().getSource();
+			treeChildren.put(child.getId(), new TreeChild(child, System.currentTimeMillis()));
+		}
+	};
+	
+	/**
+	 * sequenced log : ask a gradient neighbour for the entries above our cursor in each shard,
+	 * preferably one ranked above us, leaving out those we already hold. A gap still open
+	 * after catchUpRetries rounds is given up, nobody retains it anymore
+	 */
+	Handler<CatchUpTimeOut> handleCatchUpTimer = new Handler<NewsComp.CatchUpTimeOut>() {
+		@Override
+		public void handle(CatchUpTimeOut event) {
+			if(gradientNeighbours.isEmpty()) return;
+			List<KAddress> above = new ArrayList<KAddress>();
+			for(Container<KAddress, NewsView> neighbour : gradientNeighbours){
+				if(viewComparator.compare(neighbour.getContent(), localNewsView) > 0){
+					above.add(neighbour.getSource());
+				}
+			}
+			KAddress target = above.isEmpty()
+					? gradientNeighbours.get(rand.nextInt(gradientNeighbours.size())).getSource()
+					: above.get(rand.nextInt(above.size()));
+			for(int shard = 0; shard < newsConfig.shards; shard++){
+				LogCursor cursor = logCursor(shard);
+				if(cursor.round(newsConfig.catchUpRetries)){
+					LOG.info("{}gave up a gap in the log of shard:{}, now at:{}", logPrefix, shard, cursor);
+				}
+				sendTo(target, new NewsRangeRequest(shard, cursor.contiguous(), cursor.held(newsConfig.catchUpMaxNews),
+						newsConfig.catchUpMaxNews));
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleRangeRequest = new ClassMatchedHandler<NewsRangeRequest, KContentMsg<?, ?, NewsRangeRequest>>() {
+		@Override
+		public void handle(NewsRangeRequest content, KContentMsg<?, ?, NewsRangeRequest> context) {
+			Set<Long> held = new HashSet<Long>(content.held);
+			long bound = content.held.size() < content.maxNews ? Long.MAX_VALUE : content.held.get(content.held.size() - 1);
+			List<News> range = new ArrayList<News>();
+			for(News news : retainedNews){
+				long logPosition = news.getLogPosition();
+				if(news.getLogSeq() >= 0 && logPosition > content.contiguous && logPosition < bound
+						&& !held.contains(logPosition) && shardOf(news) == content.shard){
+					range.add(news);
+				}
+			}
+			if(range.isEmpty()) return;
+			Collections.sort(range, new Comparator<News>() {
+				@Override
+				public int compare(News n1, News n2) {
+					return Long.compare(n1.getLogPosition(), n2.getLogPosition());
+				}
+			});
+			if(range.size() > content.maxNews){
+				range = new ArrayList<News>(range.subList(0, content.maxNews));
+			}
+			sendTo(context.getHeader().getSource(), new NewsRangeResponse(range));
+		}
+	};
+	
+	ClassMatchedHandler handleRangeResponse = new ClassMatchedHandler<NewsRangeResponse, KContentMsg<?, ?, NewsRangeResponse>>() {
+		@Override
+		public void handle(NewsRangeResponse content, KContentMsg<?, ?, NewsRangeResponse> context) {
+			receiveRange(content, context.getHeader().getSource());
+		}
+	};
+	
+	private void receiveRange(NewsRangeResponse content, KAddress source){
+		boolean updated = false;
+		for(News news : content.news){
+			neighbourNews.record(source.getId(), news.getId());
+			updated |= acceptNews(news, source);
+		}
+		if(updated){
+			updateLocalNewsView();
+		}
+	}
+	
+	/**
+	 * rumour mongering : push every hot rumour again, each round costs one hop of ttl
+	 */
+	Handler<RumourTimeOut> handleRumourTimer = new Handler<NewsComp.RumourTimeOut>() {
+		@Override
+		public void handle(RumourTimeOut event) {
+			Iterator<Map.Entry<Long, News>> it = hotRumours.entrySet().iterator();
+			while(it.hasNext()){
+				Map.Entry<Long, News> rumour = it.next();
+				News news = rumour.getValue();
+				if(news.getTtl() == 0){
+					it.remove();
+					continue;
+				}
+				pushRumour(news);
+				rumour.setValue(news.copyWithLowerTTL());
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleFeedback = new ClassMatchedHandler<NewsFeedback, KContentMsg<?, ?, NewsFeedback>>() {
+		@Override
+		public void handle(NewsFeedback content, KContentMsg<?, ?, NewsFeedback> context) {
+			for(long newsId : content.newsIds){
+				neighbourNews.record(context.getHeader().getSource().getId(), newsId);
+				if(hotRumours.containsKey(newsId) && rand.nextDouble() < newsConfig.stopProbability){
+					hotRumours.remove(newsId);
+				}
+			}
+		}
+	};
+	
+	Handler<OutboundTimeOut> handleOutboundTimer = new Handler<NewsComp.OutboundTimeOut>() {
+		@Override
+		public void handle(OutboundTimeOut event) {
+			if(shaper.depth() == 0) return;
+			for(OutboundShaper.Pending pending : shaper.release(System.currentTimeMillis())){
+				transmit(pending.target, pending.content);
+			}
+			updateShaperMetrics();
+		}
+	};
+	
+	Handler<BatchFlushTimeOut> handleBatchFlushTimer = new Handler<NewsComp.BatchFlushTimeOut>() {
+		@Override
+		public void handle(BatchFlushTimeOut event) {
+			for(OutboundBatcher.Batch batch : batcher.drain()){
+				sendBatch(batch);
+			}
+		}
+	};
+	
+	/**
+	 * anti-entropy : push-pull digest exchange with a random croupier neighbour
+	 */
+	Handler<AntiEntropyTimeOut> handleAntiEntropyTimer = new Handler<NewsComp.AntiEntropyTimeOut>() {
+		@Override
+		public void handle(AntiEntropyTimeOut event) {
+			if(currentNeighbours.isEmpty()) return;
+			// prefer a neighbour we know has something for us
+			List<KAddress> candidates = neighboursAhead.isEmpty() ? currentNeighbours : neighboursAhead;
+			KAddress partner = candidates.get(rand.nextInt(candidates.size()));
+			sendTo(partner, new NewsDigest(knownNews.copy()));
+		}
+	};
+	
+	ClassMatchedHandler handleDigest = new ClassMatchedHandler<NewsDigest, KContentMsg<?, ?, NewsDigest>>() {
+		@Override
+		public void handle(NewsDigest content, KContentMsg<?, ?, NewsDigest> context) {
+			// always answer, our watermarks are the pull half of the exchange
+			KAddress source = context.getHeader().getSource();
+			InterestFilter filter = neighbourInterest.get(source.getId());
+			List<News> missing = missingFrom(content.watermarks, newsConfig.antiEntropyMaxNews,
+					filter == null ? InterestFilter.ALL : filter);
+			sendTo(source, new NewsDelta(missing, knownNews.copy()));
+		}
+	};
+	
+	ClassMatchedHandler handleDelta = new ClassMatchedHandler<NewsDelta, KContentMsg<?, ?, NewsDelta>>() {
+		@Override
+		public void handle(NewsDelta content, KContentMsg<?, ?, NewsDelta> context) {
+			receiveDelta(content, context.getHeader().getSource());
+		}
+	};
+	
+	private void receiveDelta(NewsDelta content, KAddress source){
+		boolean updated = false;
+		for(News news : content.news){
+			neighbourNews.record(source.getId(), news.getId());
+			updated |= acceptNews(news, source);
+		}
+		if(updated){
+			updateLocalNewsView();
+		}
+		if(content.watermarks != null){
+			List<News> missing = missingFrom(content.watermarks);
+			if(!missing.isEmpty()){
+				sendTo(source, new NewsDelta(missing, null));
+			}
+		}
+	}
+	
+	ClassMatchedHandler handleCompressed = new ClassMatchedHandler<CompressedNews, KContentMsg<?, ?, CompressedNews>>() {
+		@Override
+		public void handle(CompressedNews content, KContentMsg<?, ?, CompressedNews> context) {
+			if(compressor == null){
+				LOG.warn("{}compressed news from:{} while compression is disabled", logPrefix, context.getHeader().getSource());
+				return;
+			}
+			Object msg = compressor.decompress(content);
+			updateCompressionMetrics();
+			KAddress source = context.getHeader().getSource();
+			if(msg instanceof NewsBatch){
+				receiveBatch((NewsBatch) msg, source);
+			} else if(msg instanceof NewsDelta){
+				receiveDelta((NewsDelta) msg, source);
+			} else if(msg instanceof NewsRangeResponse){
+				receiveRange((NewsRangeResponse) msg, source);
+			} else if(msg instanceof NewsSnapshotChunk){
+				receiveSnapshotChunk((NewsSnapshotChunk) msg, source);
+			} else {
+				// unknown dictionary or corrupt payload, the news will come again through repair
+				LOG.debug("{}dropped compressed news from:{}", logPrefix, source);
+				if(compressor.missingDictionary(content)){
+					sendTo(source, new NewsDictionaryMiss(content.dictionaryId));
+				}
+			}
+		}
+	};
+	
+	ClassMatchedHandler handleDictionaryMiss = new ClassMatchedHandler<NewsDictionaryMiss, KContentMsg<?, ?, NewsDictionaryMiss>>() {
+		@Override
+		public void handle(NewsDictionaryMiss content, KContentMsg<?, ?, NewsDictionaryMiss> context) {
+			if(compressor != null){
+				compressor.dictionaryMissed(context.getHeader().getSource().getId(), content.dictionaryId);
+			}
 		}
 	};
 
@@ -243,6 +1708,31 @@ public class NewsComp extends ComponentDefinition {
             
 
 
+    private static class TreeChild {
+    	final KAddress adr;
+    	final long lastJoin;
+    	
+    	TreeChild(KAddress adr, long lastJoin) {
+    		this.adr = adr;
+    		this.lastJoin = lastJoin;
+    	}
+    }
+
+    private static class SnapshotSession {
+    	final KAddress joiner;
+    	final List<News> news;
+    	int nextChunk = 0;
+    	int credit;
+    	long lastAck;
+    	
+    	SnapshotSession(KAddress joiner, List<News> news, int credit, long lastAck) {
+    		this.joiner = joiner;
+    		this.news = news;
+    		this.credit = credit;
+    		this.lastAck = lastAck;
+    	}
+    }
+
     public static class Init extends se.sics.kompics.Init<NewsComp> {
 
         public final KAddress selfAdr;
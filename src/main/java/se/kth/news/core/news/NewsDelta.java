@@ -0,0 +1,43 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import java.util.List;
+import se.kth.news.core.news.util.NewsWatermarks;
+
+/**
+ * Anti-entropy answer: the news the receiver is missing. The answer to a
+ * {@link NewsDigest} also carries the watermarks of its sender so that the
+ * exchange is push-pull; the final leg of the exchange carries none.
+ */
+public class NewsDelta {
+
+    public final List<News> news;
+    //null on the last leg of the exchange
+    public final NewsWatermarks watermarks;
+
+    public NewsDelta(List<News> news, NewsWatermarks watermarks) {
+        this.news = news;
+        this.watermarks = watermarks;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsDelta<" + news.size() + " news>";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import se.kth.news.core.news.util.NewsWatermarks;
+
+/**
+ * Anti-entropy request: the watermarks of the sender, so that the receiver can
+ * answer with the retained news the sender is missing.
+ */
+public class NewsDigest {
+
+    public final NewsWatermarks watermarks;
+
+    public NewsDigest(NewsWatermarks watermarks) {
+        this.watermarks = watermarks;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsDigest<" + watermarks + ">";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import java.util.Arrays;
+
+/**
+ * Rumour mongering feedback: the news pushed by the receiver that the sender
+ * already knew. The receiver may lose interest in spreading them.
+ */
+public class NewsFeedback {
+
+    public final long[] newsIds;
+
+    public NewsFeedback(long[] newsIds) {
+        this.newsIds = newsIds;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsFeedback<" + Arrays.toString(newsIds) + ">";
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import java.util.Set;
+import java.util.TreeSet;
+import se.sics.kompics.config.Config;
+
+/**
+ * Tuning knobs of the news component, read from the news block of the config.
+ * Defaults live in reference.conf.
+ */
+public class NewsKCWrapper {
+
+    public final Config configCore;
+    //max number of news bodies kept by a node
+    public final int retentionSize;
+    //max age (ms) of the news bodies kept by a node
+    public final long retentionAge;
+    public final DisseminationMode dissemination;
+    //period (ms) of the anti-entropy digest exchange
+    public final long antiEntropyPeriod;
+    //max number of news sent back in a single anti-entropy answer
+    public final int antiEntropyMaxNews;
+    //window (ms) during which news for the same neighbour are coalesced, 0 sends every news on its own
+    public final long batchFlushPeriod;
+    //max number of news in a batch, a full batch leaves without waiting for the flush
+    public final int batchSize;
+    //number of random croupier neighbours a rumour is pushed to per round
+    public final int fanout;
+    //probability to stop spreading a rumour each time a neighbour reports it as a duplicate
+    public final double stopProbability;
+    //period (ms) of the rumour mongering rounds
+    public final long rumourPeriod;
+    //number of neighbours for which we remember the news they already have
+    public final int knownNewsPeers;
+    //number of news ids remembered per neighbour
+    public final int knownNewsPerPeer;
+    //a tree child that did not rejoin for this long (ms) is dropped
+    public final long treeChildTimeout;
+    //writers submit their news to the leader, which numbers them in a single log
+    public final boolean leaderSequencing;
+    //period (ms) at which a node asks a gradient neighbour for the log entries above its cursor
+    public final long catchUpPeriod;
+    //max number of log entries in a catch-up answer
+    public final int catchUpMaxNews;
+    //catch-up rounds without progress after which a gap in the log is given up
+    public final int catchUpRetries;
+    //deflate batches, anti-entropy deltas and catch-up ranges
+    public final boolean compression;
+    //encoded size (bytes) under which a bulk message is sent uncompressed
+    public final int compressionThreshold;
+    //number of recent titles the compression dictionary is built from
+    public final int compressionDictionaryTitles;
+    //keep accepted news in an on-disk log and recover from it on start
+    public final boolean persistence;
+    //each node logs to its own sub dir of this one
+    public final String persistenceDir;
+    //log under a fresh run-* sub dir of persistenceDir, so that a new run does not recover the last one
+    public final boolean persistenceFreshRun;
+    //size (bytes) of the data file of a log segment
+    public final int segmentSize;
+    //max number of news in a log segment
+    public final int segmentEntries;
+    //max number of appends buffered by the log, a full buffer is committed before the end of the window
+    public final int persistenceQueueSize;
+    //time (ms) the log gathers appends before a single fsync, 0 commits every append on its own
+    public final long persistenceBatchWindow;
+    //a starting node pulls the retained news of its best gradient neighbour, meant for late joiners
+    public final boolean snapshotJoin;
+    //max number of news a provider hands to one joiner, anti-entropy brings the rest
+    public final int snapshotMaxNews;
+    //number of news per snapshot chunk
+    public final int snapshotChunkSize;
+    //max number of snapshot chunks in flight without an ack
+    public final int snapshotWindow;
+    //a snapshot transfer that made no progress for this long (ms) is retried, or dropped by the provider
+    public final long snapshotTimeout;
+    //outbound rate limits (messages/s) and bursts (messages), for the whole node and per neighbour, 0 is unlimited
+    public final double nodeRate;
+    public final double nodeBurst;
+    public final double neighbourRate;
+    public final double neighbourBurst;
+    //max number of messages waiting for tokens
+    public final int outboundQueueSize;
+    public final OverflowPolicy outboundPolicy;
+    //period (ms) at which waiting messages are released
+    public final long outboundTick;
+    //news older than this (ms) are no longer fresh when queued for sending
+    public final long freshAge;
+    //a queued stale re-forward is dropped after waiting this long (ms)
+    public final long staleExpiry;
+    //period (ms) at which a changed view is sent to the overlays, 0 sends it on every change
+    public final long viewUpdateInterval;
+    //a view whose count moved by at least this much is sent without waiting for the period, 0 always waits
+    public final int viewUpdateThreshold;
+    //period (ms) at which changes held back by viewUpdateThreshold are flushed when viewUpdateInterval is 0
+    public final long viewFlushInterval;
+    //number of writers summarized in the news view, ranking by completeness; -1 ranks by news count only
+    public final int viewSummaryWriters;
+    //number of recent news ids riding along in the news view exchanged by the overlays, 0 disables it
+    public final int piggybackSize;
+    //the recent news themselves ride along instead of their ids
+    public final boolean piggybackNews;
+    //size (bytes) of the body of the news published by a simulated writer, 0 publishes titles only
+    //and stops retrying chunk pulls, so it should be set on every node
+    public final int bodySize;
+    //news published at once by a simulated writer on each of its ticks, raise it to saturate the leader
+    public final int publishBurst;
+    //bodies are split in chunks of this many bytes, pulled by id from the neighbours that sent the news
+    public final int bodyChunkSize;
+    //max number of chunks requested from a single neighbour at a time
+    public final int bodyWindow;
+    //a chunk request not answered within this time (ms) goes to another neighbour
+    public final long bodyTimeout;
+    //max bytes of body chunks kept by a node
+    public final long bodyStoreSize;
+    //max number of news in the answer to a query
+    public final int queryMaxNews;
+    //number of topics simulated writers publish on, following a zipf law of exponent topicSkew; 0 disables topics
+    public final int topics;
+    public final double topicSkew;
+    //comma separated topics of the node, empty takes every topic
+    public final Set<Integer> subscriptions;
+    //size (bits) and number of hash functions of the advertised interest filter
+    public final int interestFilterBits;
+    public final int interestFilterHashes;
+    //window (ms) during which the leader gathers submissions in a batch before numbering them, 0 numbers each on arrival
+    public final long orderBatchWindow;
+    //max number of news in an ordered batch, a full batch is sealed without waiting for the window
+    public final int orderBatchSize;
+    //max number of ordered batches waiting for the acks of a majority of the replicas
+    public final int orderPipelineDepth;
+    //a batch not acked within this time (ms) frees its slot
+    public final long orderTimeout;
+    //shared with the leader election: the news of writer w are numbered by the leader of shard w % shards
+    public final int shards;
+
+    public NewsKCWrapper(Config config) {
+        configCore = config;
+        retentionSize = config.getValue("news.retentionSize", Integer.class);
+        retentionAge = config.getValue("news.retentionAge", Long.class);
+        dissemination = DisseminationMode.valueOf(config.getValue("news.dissemination", String.class));
+        antiEntropyPeriod = config.getValue("news.antiEntropyPeriod", Long.class);
+        antiEntropyMaxNews = config.getValue("news.antiEntropyMaxNews", Integer.class);
+        batchFlushPeriod = config.getValue("news.batchFlushPeriod", Long.class);
+        batchSize = config.getValue("news.batchSize", Integer.class);
+        fanout = config.getValue("news.fanout", Integer.class);
+        stopProbability = config.getValue("news.stopProbability", Double.class);
+        rumourPeriod = config.getValue("news.rumourPeriod", Long.class);
+        knownNewsPeers = config.getValue("news.knownNewsPeers", Integer.class);
+        knownNewsPerPeer = config.getValue("news.knownNewsPerPeer", Integer.class);
+        treeChildTimeout = config.getValue("news.treeChildTimeout", Long.class);
+        leaderSequencing = config.getValue("news.leaderSequencing", Boolean.class);
+        catchUpPeriod = config.getValue("news.catchUpPeriod", Long.class);
+        catchUpMaxNews = config.getValue("news.catchUpMaxNews", Integer.class);
+        catchUpRetries = config.getValue("news.catchUpRetries", Integer.class);
+        compression = config.getValue("news.compression", Boolean.class);
+        compressionThreshold = config.getValue("news.compressionThreshold", Integer.class);
+        compressionDictionaryTitles = config.getValue("news.compressionDictionaryTitles", Integer.class);
+        persistence = config.getValue("news.persistence", Boolean.class);
+        persistenceDir = config.getValue("news.persistenceDir", String.class);
+        persistenceFreshRun = config.getValue("news.persistenceFreshRun", Boolean.class);
+        segmentSize = config.getValue("news.segmentSize", Integer.class);
+        segmentEntries = config.getValue("news.segmentEntries", Integer.class);
+        persistenceQueueSize = config.getValue("news.persistenceQueueSize", Integer.class);
+        persistenceBatchWindow = config.getValue("news.persistenceBatchWindow", Long.class);
+        snapshotJoin = config.getValue("news.snapshotJoin", Boolean.class);
+        snapshotMaxNews = config.getValue("news.snapshotMaxNews", Integer.class);
+        snapshotChunkSize = config.getValue("news.snapshotChunkSize", Integer.class);
+        snapshotWindow = config.getValue("news.snapshotWindow", Integer.class);
+        snapshotTimeout = config.getValue("news.snapshotTimeout", Long.class);
+        nodeRate = config.getValue("news.nodeRate", Double.class);
+        nodeBurst = config.getValue("news.nodeBurst", Double.class);
+        neighbourRate = config.getValue("news.neighbourRate", Double.class);
+        neighbourBurst = config.getValue("news.neighbourBurst", Double.class);
+        outboundQueueSize = config.getValue("news.outboundQueueSize", Integer.class);
+        outboundPolicy = OverflowPolicy.valueOf(config.getValue("news.outboundPolicy", String.class));
+        outboundTick = config.getValue("news.outboundTick", Long.class);
+        freshAge = config.getValue("news.freshAge", Long.class);
+        staleExpiry = config.getValue("news.staleExpiry", Long.class);
+        viewUpdateInterval = config.getValue("news.viewUpdateInterval", Long.class);
+        viewUpdateThreshold = config.getValue("news.viewUpdateThreshold", Integer.class);
+        viewFlushInterval = config.getValue("news.viewFlushInterval", Long.class);
+        if (viewUpdateInterval == 0 && viewUpdateThreshold > 0 && viewFlushInterval <= 0) {
+            throw new IllegalArgumentException("viewUpdateThreshold without viewUpdateInterval needs viewFlushInterval > 0");
+        }
+        viewSummaryWriters = config.getValue("news.viewSummaryWriters", Integer.class);
+        piggybackSize = config.getValue("news.piggybackSize", Integer.class);
+        piggybackNews = config.getValue("news.piggybackNews", Boolean.class);
+        bodySize = config.getValue("news.bodySize", Integer.class);
+        publishBurst = config.getValue("news.publishBurst", Integer.class);
+        bodyChunkSize = config.getValue("news.bodyChunkSize", Integer.class);
+        bodyWindow = config.getValue("news.bodyWindow", Integer.class);
+        bodyTimeout = config.getValue("news.bodyTimeout", Long.class);
+        bodyStoreSize = config.getValue("news.bodyStoreSize", Long.class);
+        queryMaxNews = config.getValue("news.queryMaxNews", Integer.class);
+        topics = config.getValue("news.topics", Integer.class);
+        topicSkew = config.getValue("news.topicSkew", Double.class);
+        subscriptions = new TreeSet<>();
+        for (String topic : config.getValue("news.subscriptions", String.class).split(",")) {
+            if (!topic.trim().isEmpty()) {
+                subscriptions.add(Integer.parseInt(topic.trim()));
+            }
+        }
+        interestFilterBits = config.getValue("news.interestFilterBits", Integer.class);
+        interestFilterHashes = config.getValue("news.interestFilterHashes", Integer.class);
+        if (interestFilterBits <= 0) {
+            throw new IllegalArgumentException("interestFilterBits must be > 0, got:" + interestFilterBits);
+        }
+        orderBatchWindow = config.getValue("news.orderBatchWindow", Long.class);
+        orderBatchSize = config.getValue("news.orderBatchSize", Integer.class);
+        orderPipelineDepth = config.getValue("news.orderPipelineDepth", Integer.class);
+        orderTimeout = config.getValue("news.orderTimeout", Long.class);
+        shards = config.getValue("leader.shards", Integer.class);
+    }
+}
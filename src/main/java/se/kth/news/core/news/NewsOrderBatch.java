@@ -0,0 +1,42 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import java.util.List;
+
+/**
+ * A batch of news sealed by the leader, numbered from firstLogSeq on in its term, sent to
+ * its gradient neighbours which ack it and disseminate the news further.
+ */
+public class NewsOrderBatch {
+
+    public final int term;
+    public final int firstLogSeq;
+    public final List<News> news;
+
+    public NewsOrderBatch(int term, int firstLogSeq, List<News> news) {
+        this.term = term;
+        this.firstLogSeq = firstLogSeq;
+        this.news = news;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsOrderBatch<term " + term + " from " + firstLogSeq + ", " + news.size() + " news>";
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+import java.util.List;
+
+/**
+ * Catch-up request for the sequenced news log of a shard: every retained entry
+ * of that shard with a log position above the contiguous mark of the requester,
+ * at most maxNews of them, leaving out the entries it already holds above the
+ * mark. The held list is limited to maxNews entries; once it is full, nothing
+ * above its last entry is asked for.
+ */
+public class NewsRangeRequest {
+
+    public final int shard;
+    public final long contiguous;
+    //ascending log positions
+    public final List<Long> held;
+    public final int maxNews;
+
+    public NewsRangeRequest(int shard, long contiguous, List<Long> held, int maxNews) {
+        this.shard = shard;
+        this.contiguous = contiguous;
+        this.held = held;
+        this.maxNews = maxNews;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsRangeRequest<shard " + shard + " above " + News.termOf(contiguous) + ":"
+                + News.logSeqOf(contiguous) + ", " + held.size() + " held>";
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news;
+
+/**
+ * Classes of outgoing messages, most urgent first. Under congestion a class is
+ * only served once every class above it is empty.
+ */
+public enum OutboundPriority {
+    //small protocol messages: digests, acks, feedback, joins, requests
+    CONTROL(false),
+    //news published by this node
+    LOCAL(false),
+    //recent news with most of their ttl left
+    FRESH(false),
+    //bulk repair: anti-entropy deltas, catch-up ranges, snapshot chunks
+    REPAIR(false),
+    //old or far travelled re-forwards, dropped if they wait too long
+    STALE(true);
+
+    public final boolean expires;
+
+    private OutboundPriority(boolean expires) {
+        this.expires = expires;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.log;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.serializer.NewsSerializer;
+import se.kth.news.core.news.serializer.NewsWatermarksSerializer;
+import se.kth.news.core.news.serializer.VarInt;
+import se.kth.news.core.news.util.LogCursor;
+import se.kth.news.core.news.util.NewsWatermarks;
+
+/**
+ * Append-only log of the news accepted by a node, made of memory-mapped
+ * {@link NewsSegment}s. A full segment rolls over to a new one. Segments that
+ * fall out of the retention policy are folded into the compacted snapshot
+ * (watermarks and log cursor only) and deleted, so dedup state survives compaction.
+ * Recovery rebuilds the dedup state from the snapshot and the segment indexes
+ * alone; only the retained tail is decoded back into news.
+ */
+public class NewsLog {
+
+    private static final String SNAPSHOT = "compacted.snapshot";
+
+    private final File dir;
+    private final int segmentSize;
+    private final int segmentEntries;
+    private final int retentionSize;
+    private final long retentionAge;
+    private final ArrayDeque<NewsSegment> segments = new ArrayDeque<>();
+    //state of the news of the deleted segments
+    private NewsWatermarks compactedNews = new NewsWatermarks();
+    private LogCursor compactedLog = new LogCursor();
+    private int size = 0;
+    //segments written to since the last force
+    private final List<NewsSegment> unforced = new ArrayList<>();
+
+    public NewsLog(File dir, int segmentSize, int segmentEntries, int retentionSize, long retentionAge) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.segmentEntries = segmentEntries;
+        this.retentionSize = retentionSize;
+        this.retentionAge = retentionAge;
+    }
+
+    public void open() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("could not create news log dir " + dir);
+        }
+        File snapshot = new File(dir, SNAPSHOT);
+        if (snapshot.exists()) {
+            ByteBuf buf = Unpooled.wrappedBuffer(Files.readAllBytes(snapshot.toPath()));
+            int term = VarInt.readInt(buf) - 1;
+            compactedLog = new LogCursor(News.logPosition(term, VarInt.readInt(buf) - 1));
+            compactedNews = NewsWatermarksSerializer.decode(buf);
+        }
+        List<Long> bases = new ArrayList<>();
+        File[] files = dir.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(".idx")) {
+                bases.add(Long.parseLong(name.substring(0, name.length() - 4)));
+            }
+        }
+        Collections.sort(bases);
+        for (long base : bases) {
+            NewsSegment segment = NewsSegment.open(dir, base, segmentSize, segmentEntries);
+            segments.addLast(segment);
+            size += segment.entries();
+        }
+        if (segments.isEmpty()) {
+            segments.addLast(NewsSegment.open(dir, 0, segmentSize, segmentEntries));
+        }
+    }
+
+    /**
+     * @return dedup state of every news ever appended, read from the indexes only
+     */
+    public NewsWatermarks recoverWatermarks() {
+        NewsWatermarks watermarks = compactedNews.copy();
+        for (NewsSegment segment : segments) {
+            for (int i = 0; i < segment.entries(); i++) {
+                watermarks.add(segment.newsId(i));
+            }
+        }
+        return watermarks;
+    }
+
+    public LogCursor recoverLogCursor() {
+        LogCursor cursor = new LogCursor(compactedLog.contiguous());
+        for (NewsSegment segment : segments) {
+            for (int i = 0; i < segment.entries(); i++) {
+                if (segment.logPosition(i) >= 0) {
+                    cursor.add(segment.logPosition(i));
+                }
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * @return the most recent news still within the retention policy, oldest first
+     */
+    public List<News> recoverRecent(long now) {
+        List<News> recent = new ArrayList<>();
+        Iterator<NewsSegment> it = segments.descendingIterator();
+        while (it.hasNext() && recent.size() < retentionSize) {
+            NewsSegment segment = it.next();
+            if (now - segment.newestTimestamp() > retentionAge) {
+                break;
+            }
+            for (int i = segment.entries() - 1; i >= 0 && recent.size() < retentionSize; i--) {
+                if (now - segment.timestamp(i) <= retentionAge) {
+                    recent.add(segment.read(i));
+                }
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    public void append(News news, long now) throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        NewsSerializer.encode(news, buf);
+        byte[] record = new byte[buf.readableBytes()];
+        buf.readBytes(record);
+        buf.release();
+        if (!segments.peekLast().append(news, record)) {
+            NewsSegment last = segments.peekLast();
+            segments.addLast(NewsSegment.open(dir, last.base + last.entries(), segmentSize, segmentEntries));
+            if (!segments.peekLast().append(news, record)) {
+                throw new IOException("news record of " + record.length + " bytes does not fit in a segment");
+            }
+            compact(now);
+        }
+        if (unforced.isEmpty() || unforced.get(unforced.size() - 1) != segments.peekLast()) {
+            unforced.add(segments.peekLast());
+        }
+        size++;
+    }
+
+    /**
+     * fsyncs every segment appended to since the last call
+     */
+    public void force() {
+        for (NewsSegment segment : unforced) {
+            segment.force();
+        }
+        unforced.clear();
+    }
+
+    // drops whole segments from the front once the rest alone satisfies the retention policy
+    private void compact(long now) throws IOException {
+        while (segments.size() > 1) {
+            NewsSegment oldest = segments.peekFirst();
+            boolean expired = now - oldest.newestTimestamp() > retentionAge;
+            boolean surplus = size - oldest.entries() >= retentionSize;
+            if (!expired && !surplus) {
+                return;
+            }
+            for (int i = 0; i < oldest.entries(); i++) {
+                compactedNews.add(oldest.newsId(i));
+                if (oldest.logPosition(i) >= 0) {
+                    compactedLog.add(oldest.logPosition(i));
+                }
+            }
+            writeSnapshot();
+            unforced.remove(oldest);
+            segments.pollFirst().delete();
+            size -= oldest.entries();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        VarInt.writeInt(News.termOf(compactedLog.contiguous()) + 1, buf);
+        VarInt.writeInt(News.logSeqOf(compactedLog.contiguous()) + 1, buf);
+        NewsWatermarksSerializer.encode(compactedNews, buf);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        buf.release();
+        File tmp = new File(dir, SNAPSHOT + ".tmp");
+        Files.write(tmp.toPath(), bytes);
+        Files.move(tmp.toPath(), new File(dir, SNAPSHOT).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return number of news in the live segments
+     */
+    public int size() {
+        return size;
+    }
+
+    public void close() throws IOException {
+        for (NewsSegment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+}
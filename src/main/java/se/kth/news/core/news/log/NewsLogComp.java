@@ -0,0 +1,195 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.news.core.news.NewsKCWrapper;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Handler;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.Start;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
+import se.sics.kompics.timer.SchedulePeriodicTimeout;
+import se.sics.kompics.timer.Timeout;
+import se.sics.kompics.timer.Timer;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Owns the {@link NewsLog} of a node, in a component of its own so that the
+ * disk I/O does not hold up the news handlers. Appends are buffered and
+ * group-committed by the flush timer every batch window: all of them are appended and
+ * forced to disk with a single fsync, then the highest durable append is
+ * acknowledged with a {@link NewsLogDurable}, or reported lost with a
+ * {@link NewsLogFailed} when the write fails. The buffer is bounded; a full
+ * one is committed right away instead of blocking or dropping the append, so
+ * under load the batches are just smaller than the window would make them.
+ */
+public class NewsLogComp extends ComponentDefinition {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NewsLogComp.class);
+    private String logPrefix = " ";
+
+    //*******************************CONNECTIONS********************************
+    Negative<NewsLogPort> logPort = provides(NewsLogPort.class);
+    Positive<Timer> timerPort = requires(Timer.class);
+    //*******************************EXTERNAL_STATE*****************************
+    private NewsKCWrapper newsConfig;
+    //*******************************INTERNAL_STATE*****************************
+    private final NewsLog newsLog;
+    private final List<NewsLogAppend> pending = new ArrayList<>();
+    private UUID flushTimerId;
+    //commits forced by a full buffer before the end of the window
+    private long earlyFlushes = 0;
+    //shared by the nodes of this run, see runDir
+    private static File runDir;
+
+    public NewsLogComp(Init init) {
+        logPrefix = "<nid:" + init.selfAdr.getId() + ">";
+        newsConfig = new NewsKCWrapper(config());
+        newsLog = new NewsLog(init.dir, newsConfig.segmentSize, newsConfig.segmentEntries,
+                newsConfig.retentionSize, newsConfig.retentionAge);
+
+        subscribe(handleStart, control);
+        subscribe(handleAppend, logPort);
+        subscribe(handleFlush, timerPort);
+    }
+
+    private static class FlushTimeOut extends Timeout {
+
+        protected FlushTimeOut(SchedulePeriodicTimeout request) {
+            super(request);
+        }
+    }
+
+    Handler handleStart = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            long start = System.currentTimeMillis();
+            try {
+                newsLog.open();
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+            trigger(new NewsLogRecovered(newsLog.recoverWatermarks(), newsLog.recoverLogCursor(),
+                    newsLog.recoverRecent(start), System.currentTimeMillis() - start), logPort);
+            if (newsConfig.persistenceBatchWindow > 0) {
+                SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(newsConfig.persistenceBatchWindow,
+                        newsConfig.persistenceBatchWindow);
+                Timeout timeout = new FlushTimeOut(spt);
+                spt.setTimeoutEvent(timeout);
+                trigger(spt, timerPort);
+                flushTimerId = timeout.getTimeoutId();
+            }
+        }
+    };
+
+    Handler handleAppend = new Handler<NewsLogAppend>() {
+        @Override
+        public void handle(NewsLogAppend event) {
+            pending.add(event);
+            if (newsConfig.persistenceBatchWindow == 0) {
+                commit();
+            } else if (pending.size() >= newsConfig.persistenceQueueSize) {
+                // back pressure: the window gathered a whole buffer, commit it now
+                earlyFlushes++;
+                LOG.debug("{}news log buffer full, committed early {} times", logPrefix, earlyFlushes);
+                commit();
+            }
+        }
+    };
+
+    Handler handleFlush = new Handler<FlushTimeOut>() {
+        @Override
+        public void handle(FlushTimeOut event) {
+            commit();
+        }
+    };
+
+    @Override
+    public void tearDown() {
+        if (flushTimerId != null) {
+            trigger(new CancelPeriodicTimeout(flushTimerId), timerPort);
+        }
+        commit();
+        try {
+            newsLog.close();
+        } catch (IOException ex) {
+            LOG.warn("{}could not close the news log:{}", logPrefix, ex.getMessage());
+        }
+    }
+
+    private void commit() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            for (NewsLogAppend append : pending) {
+                newsLog.append(append.news, System.currentTimeMillis());
+            }
+            long start = System.nanoTime();
+            newsLog.force();
+            long fsyncNanos = System.nanoTime() - start;
+            trigger(new NewsLogDurable(pending.get(pending.size() - 1).seq, pending.size(), fsyncNanos), logPort);
+        } catch (IOException ex) {
+            // the news stay in memory and the log misses them, they must not pass for durable
+            LOG.error("{}news log append failed:{}", logPrefix, ex.getMessage());
+            trigger(new NewsLogFailed(pending.get(pending.size() - 1).seq, pending.size()), logPort);
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * A fresh directory under base, the same for every node of this JVM: a node
+     * restarted within the run recovers its log, a new run never sees the segments
+     * of an earlier one.
+     */
+    public static synchronized File runDir(String base) {
+        if (runDir == null) {
+            File baseDir = new File(base);
+            try {
+                if (!baseDir.isDirectory() && !baseDir.mkdirs()) {
+                    throw new IOException("could not create news log dir " + baseDir);
+                }
+                runDir = Files.createTempDirectory(baseDir.toPath(), "run-").toFile();
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return runDir;
+    }
+
+    public static class Init extends se.sics.kompics.Init<NewsLogComp> {
+
+        public final KAddress selfAdr;
+        public final File dir;
+
+        public Init(KAddress selfAdr, File dir) {
+            this.selfAdr = selfAdr;
+            this.dir = dir;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.log;
+
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * The appends after the last durable one and up to and including seq could not
+ * be written, they are not on disk and will not be acknowledged.
+ */
+public class NewsLogFailed implements KompicsEvent {
+
+    public final long seq;
+    //number of appends lost by the failed commit
+    public final int batchSize;
+
+    public NewsLogFailed(long seq, int batchSize) {
+        this.seq = seq;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsLogFailed{" + "seq=" + seq + ", batchSize=" + batchSize + '}';
+    }
+}
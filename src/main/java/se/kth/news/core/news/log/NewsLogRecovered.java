@@ -0,0 +1,43 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.log;
+
+import java.util.List;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.LogCursor;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * State rebuilt from the log on start, an empty log gives empty state.
+ */
+public class NewsLogRecovered implements KompicsEvent {
+
+    public final NewsWatermarks watermarks;
+    public final LogCursor logCursor;
+    //retained news, oldest first
+    public final List<News> recent;
+    public final long recoveryMillis;
+
+    public NewsLogRecovered(NewsWatermarks watermarks, LogCursor logCursor, List<News> recent, long recoveryMillis) {
+        this.watermarks = watermarks;
+        this.logCursor = logCursor;
+        this.recent = recent;
+        this.recoveryMillis = recoveryMillis;
+    }
+}
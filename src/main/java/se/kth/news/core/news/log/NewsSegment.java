@@ -0,0 +1,156 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.log;
+
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.serializer.NewsSerializer;
+
+/**
+ * One memory-mapped segment of the news log: a data file of length-prefixed
+ * news records and an index file of fixed size entries
+ * (news id, timestamp, log position, position of the record). The position is written
+ * last and stored +1, so a zero position marks the end of the index after a crash.
+ */
+class NewsSegment {
+
+    static final int INDEX_ENTRY_SIZE = 28;
+
+    final long base;
+    private final File dataFile;
+    private final File indexFile;
+    private final RandomAccessFile dataRaf;
+    private final RandomAccessFile indexRaf;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private final int capacity;
+    private int entries = 0;
+    private int dataPosition = 0;
+    private long newestTimestamp = Long.MIN_VALUE;
+
+    private NewsSegment(File dir, long base, int segmentSize, int segmentEntries) throws IOException {
+        this.base = base;
+        this.dataFile = new File(dir, fileName(base, ".log"));
+        this.indexFile = new File(dir, fileName(base, ".idx"));
+        this.dataRaf = new RandomAccessFile(dataFile, "rw");
+        this.indexRaf = new RandomAccessFile(indexFile, "rw");
+        this.data = dataRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        this.index = indexRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentEntries * INDEX_ENTRY_SIZE);
+        this.capacity = segmentEntries;
+    }
+
+    static String fileName(long base, String suffix) {
+        return String.format("%020d%s", base, suffix);
+    }
+
+    /**
+     * maps the segment files, creating them if needed, and finds the end of the index
+     */
+    static NewsSegment open(File dir, long base, int segmentSize, int segmentEntries) throws IOException {
+        NewsSegment segment = new NewsSegment(dir, base, segmentSize, segmentEntries);
+        while (segment.entries < segment.capacity && segment.position(segment.entries) >= 0) {
+            segment.newestTimestamp = Math.max(segment.newestTimestamp, segment.timestamp(segment.entries));
+            int position = segment.position(segment.entries);
+            segment.dataPosition = position + 4 + segment.data.getInt(position);
+            segment.entries++;
+        }
+        return segment;
+    }
+
+    /**
+     * @return false if the segment is full, the record then goes to a new segment
+     */
+    boolean append(News news, byte[] record) {
+        if (entries == capacity || dataPosition + 4 + record.length > data.capacity()) {
+            return false;
+        }
+        int position = dataPosition;
+        data.putInt(position, record.length);
+        ByteBuffer view = data.duplicate();
+        view.position(position + 4);
+        view.put(record);
+        int entry = entries * INDEX_ENTRY_SIZE;
+        index.putLong(entry, news.getId());
+        index.putLong(entry + 8, news.getTimestamp());
+        index.putLong(entry + 16, news.getLogPosition());
+        index.putInt(entry + 24, position + 1);
+        dataPosition = position + 4 + record.length;
+        newestTimestamp = Math.max(newestTimestamp, news.getTimestamp());
+        entries++;
+        return true;
+    }
+
+    int entries() {
+        return entries;
+    }
+
+    long newestTimestamp() {
+        return newestTimestamp;
+    }
+
+    long newsId(int entry) {
+        return index.getLong(entry * INDEX_ENTRY_SIZE);
+    }
+
+    long timestamp(int entry) {
+        return index.getLong(entry * INDEX_ENTRY_SIZE + 8);
+    }
+
+    long logPosition(int entry) {
+        return index.getLong(entry * INDEX_ENTRY_SIZE + 16);
+    }
+
+    private int position(int entry) {
+        return index.getInt(entry * INDEX_ENTRY_SIZE + 24) - 1;
+    }
+
+    News read(int entry) {
+        int position = position(entry);
+        byte[] record = new byte[data.getInt(position)];
+        ByteBuffer view = data.duplicate();
+        view.position(position + 4);
+        view.get(record);
+        return NewsSerializer.decode(Unpooled.wrappedBuffer(record));
+    }
+
+    /**
+     * writes the dirty pages of both files to disk
+     */
+    void force() {
+        data.force();
+        index.force();
+    }
+
+    void close() throws IOException {
+        dataRaf.close();
+        indexRaf.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        if (!dataFile.delete() || !indexFile.delete()) {
+            throw new IOException("could not delete segment " + base + " in " + dataFile.getParent());
+        }
+    }
+}
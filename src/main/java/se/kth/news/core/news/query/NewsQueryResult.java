@@ -0,0 +1,41 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.query;
+
+import java.util.List;
+import se.kth.news.core.news.News;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Only the news still retained by the node can be returned, older ones were evicted.
+ */
+public class NewsQueryResult implements KompicsEvent {
+
+    public final NewsQuery query;
+    public final List<News> news;
+
+    public NewsQueryResult(NewsQuery query, List<News> news) {
+        this.query = query;
+        this.news = news;
+    }
+
+    @Override
+    public String toString() {
+        return "NewsQueryResult<" + query + ", " + news.size() + " news>";
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import se.kth.news.core.news.CompressedNews;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.NewsBatch;
+import se.kth.news.core.news.NewsBodyChunk;
+import se.kth.news.core.news.NewsBodyRequest;
+import se.kth.news.core.news.NewsDelta;
+import se.kth.news.core.news.NewsDictionaryMiss;
+import se.kth.news.core.news.NewsDigest;
+import se.kth.news.core.news.NewsFeedback;
+import se.kth.news.core.news.NewsOrderAck;
+import se.kth.news.core.news.NewsOrderBatch;
+import se.kth.news.core.news.NewsRangeRequest;
+import se.kth.news.core.news.NewsRangeResponse;
+import se.kth.news.core.news.NewsSnapshotAck;
+import se.kth.news.core.news.NewsSnapshotChunk;
+import se.kth.news.core.news.NewsSnapshotRequest;
+import se.kth.news.core.news.NewsSubmit;
+import se.kth.news.core.news.NewsTreeJoin;
+import se.kth.news.core.news.util.ChunkId;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.sics.kompics.network.netty.serialization.Serializer;
+
+/**
+ * Serializers of the messages exchanged by the news components.
+ */
+public class NewsMsgSerializer {
+
+    static void encodeNewsList(List<News> news, ByteBuf buf) {
+        VarInt.writeInt(news.size(), buf);
+        for (News item : news) {
+            NewsSerializer.encode(item, buf);
+        }
+    }
+
+    static List<News> decodeNewsList(ByteBuf buf) {
+        int size = VarInt.readInt(buf);
+        List<News> news = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            news.add(NewsSerializer.decode(buf));
+        }
+        return news;
+    }
+
+    private static abstract class Base implements Serializer {
+
+        private final int id;
+
+        Base(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int identifier() {
+            return id;
+        }
+    }
+
+    public static class Batch extends Base {
+
+        public Batch(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            encodeNewsList(((NewsBatch) o).news, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsBatch(decodeNewsList(buf));
+        }
+    }
+
+    public static class Digest extends Base {
+
+        public Digest(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsWatermarksSerializer.encode(((NewsDigest) o).watermarks, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsDigest(NewsWatermarksSerializer.decode(buf));
+        }
+    }
+
+    public static class Delta extends Base {
+
+        public Delta(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsDelta delta = (NewsDelta) o;
+            encodeNewsList(delta.news, buf);
+            buf.writeBoolean(delta.watermarks != null);
+            if (delta.watermarks != null) {
+                NewsWatermarksSerializer.encode(delta.watermarks, buf);
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            List<News> news = decodeNewsList(buf);
+            return new NewsDelta(news, buf.readBoolean() ? NewsWatermarksSerializer.decode(buf) : null);
+        }
+    }
+
+    public static class Feedback extends Base {
+
+        public Feedback(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            long[] newsIds = ((NewsFeedback) o).newsIds;
+            VarInt.writeInt(newsIds.length, buf);
+            for (long newsId : newsIds) {
+                VarInt.writeInt(News.writerOf(newsId), buf);
+                VarInt.writeInt(News.seqOf(newsId), buf);
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            long[] newsIds = new long[VarInt.readInt(buf)];
+            for (int i = 0; i < newsIds.length; i++) {
+                int writerId = VarInt.readInt(buf);
+                newsIds[i] = News.newsId(writerId, VarInt.readInt(buf));
+            }
+            return new NewsFeedback(newsIds);
+        }
+    }
+
+    public static class Submit extends Base {
+
+        public Submit(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsSerializer.encode(((NewsSubmit) o).news, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsSubmit(NewsSerializer.decode(buf));
+        }
+    }
+
+    public static class TreeJoin extends Base {
+
+        public TreeJoin(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsTreeJoin();
+        }
+    }
+
+    public static class RangeRequest extends Base {
+
+        public RangeRequest(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsRangeRequest req = (NewsRangeRequest) o;
+            VarInt.writeInt(req.shard, buf);
+            VarInt.writeInt(News.termOf(req.contiguous) + 1, buf);
+            VarInt.writeInt(News.logSeqOf(req.contiguous) + 1, buf);
+            VarInt.writeInt(req.maxNews, buf);
+            // held positions ascend from the contiguous mark, only the gaps are written
+            VarInt.writeInt(req.held.size(), buf);
+            long previous = req.contiguous;
+            for (long logPosition : req.held) {
+                VarInt.writeLong(logPosition - previous, buf);
+                previous = logPosition;
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int shard = VarInt.readInt(buf);
+            int term = VarInt.readInt(buf) - 1;
+            long contiguous = News.logPosition(term, VarInt.readInt(buf) - 1);
+            int maxNews = VarInt.readInt(buf);
+            int nbHeld = VarInt.readInt(buf);
+            List<Long> held = new ArrayList<>(nbHeld);
+            long previous = contiguous;
+            for (int i = 0; i < nbHeld; i++) {
+                previous += VarInt.readLong(buf);
+                held.add(previous);
+            }
+            return new NewsRangeRequest(shard, contiguous, held, maxNews);
+        }
+    }
+
+    public static class RangeResponse extends Base {
+
+        public RangeResponse(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            encodeNewsList(((NewsRangeResponse) o).news, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsRangeResponse(decodeNewsList(buf));
+        }
+    }
+
+    public static class SnapshotRequest extends Base {
+
+        public SnapshotRequest(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsSnapshotRequest request = (NewsSnapshotRequest) o;
+            NewsWatermarksSerializer.encode(request.watermarks, buf);
+            VarInt.writeInt(request.window, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            NewsWatermarks watermarks = NewsWatermarksSerializer.decode(buf);
+            return new NewsSnapshotRequest(watermarks, VarInt.readInt(buf));
+        }
+    }
+
+    public static class SnapshotChunk extends Base {
+
+        public SnapshotChunk(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsSnapshotChunk chunk = (NewsSnapshotChunk) o;
+            VarInt.writeInt(chunk.chunk, buf);
+            buf.writeBoolean(chunk.last);
+            encodeNewsList(chunk.news, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int chunk = VarInt.readInt(buf);
+            boolean last = buf.readBoolean();
+            return new NewsSnapshotChunk(chunk, decodeNewsList(buf), last);
+        }
+    }
+
+    public static class SnapshotAck extends Base {
+
+        public SnapshotAck(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            VarInt.writeInt(((NewsSnapshotAck) o).chunk, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsSnapshotAck(VarInt.readInt(buf));
+        }
+    }
+
+    public static class BodyRequest extends Base {
+
+        public BodyRequest(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            List<ChunkId> chunks = ((NewsBodyRequest) o).chunks;
+            VarInt.writeInt(chunks.size(), buf);
+            for (ChunkId chunk : chunks) {
+                buf.writeBytes(chunk.digest());
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int size = VarInt.readInt(buf);
+            List<ChunkId> chunks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                chunks.add(readChunkId(buf));
+            }
+            return new NewsBodyRequest(chunks);
+        }
+    }
+
+    public static class BodyChunk extends Base {
+
+        public BodyChunk(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsBodyChunk msg = (NewsBodyChunk) o;
+            buf.writeBytes(msg.id.digest());
+            VarInt.writeInt(msg.data == null ? 0 : msg.data.length + 1, buf);
+            if (msg.data != null) {
+                buf.writeBytes(msg.data);
+            }
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            ChunkId chunkId = readChunkId(buf);
+            int length = VarInt.readInt(buf) - 1;
+            byte[] data = null;
+            if (length >= 0) {
+                data = new byte[length];
+                buf.readBytes(data);
+            }
+            return new NewsBodyChunk(chunkId, data);
+        }
+    }
+
+    public static class OrderBatch extends Base {
+
+        public OrderBatch(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsOrderBatch batch = (NewsOrderBatch) o;
+            VarInt.writeInt(batch.term, buf);
+            VarInt.writeInt(batch.firstLogSeq, buf);
+            encodeNewsList(batch.news, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = VarInt.readInt(buf);
+            int firstLogSeq = VarInt.readInt(buf);
+            return new NewsOrderBatch(term, firstLogSeq, decodeNewsList(buf));
+        }
+    }
+
+    public static class OrderAck extends Base {
+
+        public OrderAck(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            NewsOrderAck ack = (NewsOrderAck) o;
+            VarInt.writeInt(ack.term, buf);
+            VarInt.writeInt(ack.firstLogSeq, buf);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int term = VarInt.readInt(buf);
+            return new NewsOrderAck(term, VarInt.readInt(buf));
+        }
+    }
+
+    private static ChunkId readChunkId(ByteBuf buf) {
+        byte[] digest = new byte[ChunkId.LENGTH];
+        buf.readBytes(digest);
+        return new ChunkId(digest);
+    }
+
+    public static class Compressed extends Base {
+
+        public Compressed(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            CompressedNews msg = (CompressedNews) o;
+            buf.writeInt(msg.dictionaryId);
+            VarInt.writeInt(msg.dictionary == null ? 0 : msg.dictionary.length + 1, buf);
+            if (msg.dictionary != null) {
+                buf.writeBytes(msg.dictionary);
+            }
+            VarInt.writeInt(msg.rawLength, buf);
+            VarInt.writeInt(msg.payload.length, buf);
+            buf.writeBytes(msg.payload);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            int dictionaryId = buf.readInt();
+            int dictionaryLength = VarInt.readInt(buf) - 1;
+            byte[] dictionary = null;
+            if (dictionaryLength >= 0) {
+                dictionary = new byte[checkLength(dictionaryLength, buf)];
+                buf.readBytes(dictionary);
+            }
+            int rawLength = VarInt.readInt(buf);
+            byte[] payload = new byte[checkLength(VarInt.readInt(buf), buf)];
+            buf.readBytes(payload);
+            return new CompressedNews(dictionaryId, dictionary, rawLength, payload);
+        }
+
+        // a length read from the wire is checked before allocating, the bytes have to be there
+        private static int checkLength(int length, ByteBuf buf) {
+            if (length < 0 || length > buf.readableBytes()) {
+                throw new IllegalArgumentException("length " + length + " beyond the " + buf.readableBytes() + " bytes left");
+            }
+            return length;
+        }
+    }
+
+    public static class DictionaryMiss extends Base {
+
+        public DictionaryMiss(int id) {
+            super(id);
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            buf.writeInt(((NewsDictionaryMiss) o).dictionaryId);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            return new NewsDictionaryMiss(buf.readInt());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.ChunkId;
+import se.sics.kompics.network.netty.serialization.Serializer;
+
+/**
+ * Writer id and seq are written separately rather than as the packed id: both
+ * are small and fit in one or two bytes each. The same goes for the log term and seq. Body chunk ids are raw digests.
+ */
+public class NewsSerializer implements Serializer {
+
+    private final int id;
+
+    public NewsSerializer(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        encode((News) o, buf);
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        return decode(buf);
+    }
+
+    public static void encode(News news, ByteBuf buf) {
+        VarInt.writeInt(news.getWriterId(), buf);
+        VarInt.writeInt(news.getSeq(), buf);
+        VarInt.writeLong(news.getTimestamp(), buf);
+        VarInt.writeInt(news.getTtl(), buf);
+        VarInt.writeInt(news.getLogTerm() + 1, buf);
+        VarInt.writeInt(news.getLogSeq() + 1, buf);
+        VarInt.writeString(news.getTitle(), buf);
+        VarInt.writeInt(news.getTopic(), buf);
+        VarInt.writeInt(news.getChunks().size(), buf);
+        for (ChunkId chunk : news.getChunks()) {
+            buf.writeBytes(chunk.digest());
+        }
+    }
+
+    public static News decode(ByteBuf buf) {
+        int writerId = VarInt.readInt(buf);
+        int seq = VarInt.readInt(buf);
+        long timestamp = VarInt.readLong(buf);
+        int ttl = VarInt.readInt(buf);
+        int logTerm = VarInt.readInt(buf) - 1;
+        long logPosition = News.logPosition(logTerm, VarInt.readInt(buf) - 1);
+        String title = VarInt.readString(buf);
+        int topic = VarInt.readInt(buf);
+        int nbChunks = VarInt.readInt(buf);
+        if (nbChunks == 0) {
+            return new News(News.newsId(writerId, seq), title, timestamp, ttl, logPosition, Collections.<ChunkId>emptyList(), topic);
+        }
+        List<ChunkId> chunks = new ArrayList<>(nbChunks);
+        for (int i = 0; i < nbChunks; i++) {
+            byte[] digest = new byte[ChunkId.LENGTH];
+            buf.readBytes(digest);
+            chunks.add(new ChunkId(digest));
+        }
+        return new News(News.newsId(writerId, seq), title, timestamp, ttl, logPosition, chunks, topic);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import se.kth.news.core.leader.LeaderAnnounce;
+import se.kth.news.core.leader.LeaderHeartbeat;
+import se.kth.news.core.leader.LeaderHeartbeatAck;
+import se.kth.news.core.leader.LeaderProposal;
+import se.kth.news.core.leader.LeaderSerializer;
+import se.kth.news.core.leader.LeaderVote;
+import se.kth.news.core.news.CompressedNews;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.NewsBatch;
+import se.kth.news.core.news.NewsBodyChunk;
+import se.kth.news.core.news.NewsBodyRequest;
+import se.kth.news.core.news.NewsDelta;
+import se.kth.news.core.news.NewsDictionaryMiss;
+import se.kth.news.core.news.NewsDigest;
+import se.kth.news.core.news.NewsFeedback;
+import se.kth.news.core.news.NewsOrderAck;
+import se.kth.news.core.news.NewsOrderBatch;
+import se.kth.news.core.news.NewsRangeRequest;
+import se.kth.news.core.news.NewsRangeResponse;
+import se.kth.news.core.news.NewsSnapshotAck;
+import se.kth.news.core.news.NewsSnapshotChunk;
+import se.kth.news.core.news.NewsSnapshotRequest;
+import se.kth.news.core.news.NewsSubmit;
+import se.kth.news.core.news.NewsTreeJoin;
+import se.kth.news.core.news.util.NewsView;
+import se.kth.news.play.Ping;
+import se.kth.news.play.PlaySerializer;
+import se.kth.news.play.Pong;
+import se.sics.kompics.network.netty.serialization.Serializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+
+/**
+ * Registers the news serializers with Kompics. NewsView relies on the ktoolbox
+ * identifier serializers, which have to be registered as well.
+ */
+public class NewsSerializerSetup {
+
+    public static final int serializerIds = 26;
+
+    public static enum NewsSerializers {
+
+        News(News.class, "newsNews"),
+        NewsBatch(NewsBatch.class, "newsBatch"),
+        NewsDigest(NewsDigest.class, "newsDigest"),
+        NewsDelta(NewsDelta.class, "newsDelta"),
+        NewsFeedback(NewsFeedback.class, "newsFeedback"),
+        NewsSubmit(NewsSubmit.class, "newsSubmit"),
+        NewsTreeJoin(NewsTreeJoin.class, "newsTreeJoin"),
+        NewsRangeRequest(NewsRangeRequest.class, "newsRangeRequest"),
+        NewsRangeResponse(NewsRangeResponse.class, "newsRangeResponse"),
+        CompressedNews(CompressedNews.class, "newsCompressed"),
+        NewsSnapshotRequest(NewsSnapshotRequest.class, "newsSnapshotRequest"),
+        NewsSnapshotChunk(NewsSnapshotChunk.class, "newsSnapshotChunk"),
+        NewsSnapshotAck(NewsSnapshotAck.class, "newsSnapshotAck"),
+        NewsBodyRequest(NewsBodyRequest.class, "newsBodyRequest"),
+        NewsBodyChunk(NewsBodyChunk.class, "newsBodyChunk"),
+        NewsOrderBatch(NewsOrderBatch.class, "newsOrderBatch"),
+        NewsOrderAck(NewsOrderAck.class, "newsOrderAck"),
+        NewsView(NewsView.class, "newsView"),
+        LeaderProposal(LeaderProposal.class, "leaderProposal"),
+        LeaderVote(LeaderVote.class, "leaderVote"),
+        LeaderAnnounce(LeaderAnnounce.class, "leaderAnnounce"),
+        LeaderHeartbeat(LeaderHeartbeat.class, "leaderHeartbeat"),
+        LeaderHeartbeatAck(LeaderHeartbeatAck.class, "leaderHeartbeatAck"),
+        Ping(Ping.class, "newsPing"),
+        Pong(Pong.class, "newsPong"),
+        NewsDictionaryMiss(NewsDictionaryMiss.class, "newsDictionaryMiss");
+
+        public final Class serializedClass;
+        public final String serializerName;
+
+        private NewsSerializers(Class serializedClass, String serializerName) {
+            this.serializedClass = serializedClass;
+            this.serializerName = serializerName;
+        }
+    }
+
+    /**
+     * @return the next free serializer id
+     */
+    public static int registerSerializers(int startingId) {
+        int currentId = startingId;
+        register(new NewsSerializer(currentId++), NewsSerializers.News);
+        register(new NewsMsgSerializer.Batch(currentId++), NewsSerializers.NewsBatch);
+        register(new NewsMsgSerializer.Digest(currentId++), NewsSerializers.NewsDigest);
+        register(new NewsMsgSerializer.Delta(currentId++), NewsSerializers.NewsDelta);
+        register(new NewsMsgSerializer.Feedback(currentId++), NewsSerializers.NewsFeedback);
+        register(new NewsMsgSerializer.Submit(currentId++), NewsSerializers.NewsSubmit);
+        register(new NewsMsgSerializer.TreeJoin(currentId++), NewsSerializers.NewsTreeJoin);
+        register(new NewsMsgSerializer.RangeRequest(currentId++), NewsSerializers.NewsRangeRequest);
+        register(new NewsMsgSerializer.RangeResponse(currentId++), NewsSerializers.NewsRangeResponse);
+        register(new NewsMsgSerializer.Compressed(currentId++), NewsSerializers.CompressedNews);
+        register(new NewsMsgSerializer.SnapshotRequest(currentId++), NewsSerializers.NewsSnapshotRequest);
+        register(new NewsMsgSerializer.SnapshotChunk(currentId++), NewsSerializers.NewsSnapshotChunk);
+        register(new NewsMsgSerializer.SnapshotAck(currentId++), NewsSerializers.NewsSnapshotAck);
+        register(new NewsMsgSerializer.BodyRequest(currentId++), NewsSerializers.NewsBodyRequest);
+        register(new NewsMsgSerializer.BodyChunk(currentId++), NewsSerializers.NewsBodyChunk);
+        register(new NewsMsgSerializer.OrderBatch(currentId++), NewsSerializers.NewsOrderBatch);
+        register(new NewsMsgSerializer.OrderAck(currentId++), NewsSerializers.NewsOrderAck);
+        register(new NewsViewSerializer(currentId++), NewsSerializers.NewsView);
+        register(new LeaderSerializer.Proposal(currentId++), NewsSerializers.LeaderProposal);
+        register(new LeaderSerializer.Vote(currentId++), NewsSerializers.LeaderVote);
+        register(new LeaderSerializer.Announce(currentId++), NewsSerializers.LeaderAnnounce);
+        register(new LeaderSerializer.Heartbeat(currentId++), NewsSerializers.LeaderHeartbeat);
+        register(new LeaderSerializer.HeartbeatAck(currentId++), NewsSerializers.LeaderHeartbeatAck);
+        register(new PlaySerializer.PingSerializer(currentId++), NewsSerializers.Ping);
+        register(new PlaySerializer.PongSerializer(currentId++), NewsSerializers.Pong);
+        register(new NewsMsgSerializer.DictionaryMiss(currentId++), NewsSerializers.NewsDictionaryMiss);
+        assert startingId + serializerIds == currentId;
+        return currentId;
+    }
+
+    private static void register(Serializer serializer, NewsSerializers entry) {
+        Serializers.register(serializer, entry.serializerName);
+        Serializers.register(entry.serializedClass, entry.serializerName);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.InterestFilter;
+import se.kth.news.core.news.util.NewsView;
+import se.sics.kompics.network.netty.serialization.Serializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+
+/**
+ * The node id goes through the registered identifier serializer. The summary
+ * costs a couple of bytes per writer and is bounded by news.viewSummaryWriters,
+ * the piggybacked news by news.piggybackSize, the interest filter by news.interestFilterBits.
+ */
+public class NewsViewSerializer implements Serializer {
+
+    private final int id;
+
+    public NewsViewSerializer(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int identifier() {
+        return id;
+    }
+
+    @Override
+    public void toBinary(Object o, ByteBuf buf) {
+        NewsView view = (NewsView) o;
+        Serializers.toBinary(view.nodeId, buf);
+        VarInt.writeInt(view.localNewsCount, buf);
+        VarInt.writeLong(view.completeness + 1, buf);
+        VarInt.writeInt(view.summaryWriters.length, buf);
+        for (int i = 0; i < view.summaryWriters.length; i++) {
+            VarInt.writeInt(view.summaryWriters[i], buf);
+            VarInt.writeInt(view.summaryPositions[i], buf);
+        }
+        VarInt.writeInt(view.recentIds.length, buf);
+        for (long newsId : view.recentIds) {
+            VarInt.writeInt(News.writerOf(newsId), buf);
+            VarInt.writeInt(News.seqOf(newsId), buf);
+        }
+        NewsMsgSerializer.encodeNewsList(view.recent, buf);
+        long[] words = view.interest.words();
+        VarInt.writeInt(words.length, buf);
+        for (long word : words) {
+            buf.writeLong(word);
+        }
+        if (words.length > 0) {
+            VarInt.writeInt(view.interest.hashes(), buf);
+        }
+    }
+
+    @Override
+    public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+        Identifier nodeId = (Identifier) Serializers.fromBinary(buf, Optional.absent());
+        int localNewsCount = VarInt.readInt(buf);
+        long completeness = VarInt.readLong(buf) - 1;
+        int size = VarInt.readInt(buf);
+        int[] summaryWriters = new int[size];
+        int[] summaryPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            summaryWriters[i] = VarInt.readInt(buf);
+            summaryPositions[i] = VarInt.readInt(buf);
+        }
+        long[] recentIds = new long[VarInt.readInt(buf)];
+        for (int i = 0; i < recentIds.length; i++) {
+            int writerId = VarInt.readInt(buf);
+            recentIds[i] = News.newsId(writerId, VarInt.readInt(buf));
+        }
+        List<News> recent = NewsMsgSerializer.decodeNewsList(buf);
+        long[] words = new long[VarInt.readInt(buf)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buf.readLong();
+        }
+        InterestFilter interest = words.length == 0 ? InterestFilter.ALL : new InterestFilter(words, VarInt.readInt(buf));
+        return new NewsView(nodeId, localNewsCount, completeness, summaryWriters, summaryPositions, recentIds, recent, interest);
+    }
+}
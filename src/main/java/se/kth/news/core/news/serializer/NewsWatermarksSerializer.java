@@ -0,0 +1,76 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import io.netty.buffer.ByteBuf;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.kth.news.core.news.util.SequenceWindow;
+
+/**
+ * Watermarks only travel inside other messages, so there is no registered
+ * serializer for them, just the encoding.
+ */
+public class NewsWatermarksSerializer {
+
+    public static void encode(NewsWatermarks watermarks, ByteBuf buf) {
+        Set<Integer> writers = watermarks.writers();
+        VarInt.writeInt(writers.size(), buf);
+        for (int writerId : writers) {
+            SequenceWindow sw = watermarks.get(writerId);
+            VarInt.writeInt(writerId, buf);
+            VarInt.writeInt(sw.contiguous() + 1, buf);
+            VarInt.writeLong(sw.window(), buf);
+            VarInt.writeInt(sw.received(), buf);
+            // gaps as (distance from the previous one, length - 1)
+            VarInt.writeInt(sw.gaps().size(), buf);
+            int previous = -1;
+            for (Map.Entry<Integer, Integer> gap : sw.gaps().entrySet()) {
+                VarInt.writeInt(gap.getKey() - previous, buf);
+                VarInt.writeInt(gap.getValue() - gap.getKey(), buf);
+                previous = gap.getValue();
+            }
+        }
+    }
+
+    public static NewsWatermarks decode(ByteBuf buf) {
+        NewsWatermarks watermarks = new NewsWatermarks();
+        int writers = VarInt.readInt(buf);
+        for (int i = 0; i < writers; i++) {
+            int writerId = VarInt.readInt(buf);
+            int contiguous = VarInt.readInt(buf) - 1;
+            long window = VarInt.readLong(buf);
+            int received = VarInt.readInt(buf);
+            int nbGaps = VarInt.readInt(buf);
+            if (nbGaps < 0 || nbGaps > SequenceWindow.MAX_GAPS) {
+                throw new IllegalArgumentException("too many gaps for writer " + writerId + ":" + nbGaps);
+            }
+            TreeMap<Integer, Integer> gaps = new TreeMap<>();
+            int previous = -1;
+            for (int j = 0; j < nbGaps; j++) {
+                int first = previous + VarInt.readInt(buf);
+                previous = first + VarInt.readInt(buf);
+                gaps.put(first, previous);
+            }
+            watermarks.put(writerId, new SequenceWindow(contiguous, window, received, gaps));
+        }
+        return watermarks;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import se.kth.news.core.news.News;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Pulls the body chunks of the news we learned the header of. Every neighbour
+ * that sent us a header is a holder of that body; each missing chunk is asked
+ * from the least loaded holder, at most window chunks in flight per holder, so
+ * the chunks of a body come from several holders in parallel. A chunk is pulled
+ * once however many bodies wait for it. A holder that does not have the chunk
+ * yet, or does not answer within the timeout, is skipped until every holder of
+ * the chunk was tried.
+ */
+public class BodyFetcher {
+
+    private final ChunkStore store;
+    private final int window;
+    private final long timeout;
+    private final long maxAge;
+    private final Map<Long, Body> bodies = new HashMap<>();
+    private final Map<ChunkId, Pull> pulls = new LinkedHashMap<>();
+    private final Map<Identifier, Integer> inflight = new HashMap<>();
+    //metrics
+    public long pulledBytes = 0;
+    //chunks we did not pull because we had them, or were already pulling them, for another body
+    public long dedupHits = 0;
+    //chunks whose bytes did not match their id
+    public long rejected = 0;
+    public int completed = 0;
+    public long completionMillis = 0;
+
+    public BodyFetcher(ChunkStore store, int window, long timeout, long maxAge) {
+        this.store = store;
+        this.window = window;
+        this.timeout = timeout;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return true if some chunks of the body have to be pulled
+     */
+    public boolean add(News news, KAddress source, long now) {
+        Body body = new Body(now);
+        for (ChunkId id : news.getChunks()) {
+            if (store.contains(id)) {
+                dedupHits++;
+                continue;
+            }
+            if (!body.missing.add(id)) {
+                continue;
+            }
+            Pull pull = pulls.get(id);
+            if (pull == null) {
+                pull = new Pull();
+                pulls.put(id, pull);
+            } else {
+                dedupHits++;
+            }
+            pull.waiting.add(news.getId());
+        }
+        if (body.missing.isEmpty()) {
+            completed++;
+            return false;
+        }
+        body.holders.put(source.getId(), source);
+        bodies.put(news.getId(), body);
+        return true;
+    }
+
+    public void addHolder(long newsId, KAddress holder) {
+        Body body = bodies.get(newsId);
+        if (body != null) {
+            body.holders.put(holder.getId(), holder);
+        }
+    }
+
+    /**
+     * @return the chunks to request now, by holder
+     */
+    public Map<KAddress, List<ChunkId>> schedule(long now) {
+        Map<KAddress, List<ChunkId>> requests = new HashMap<>();
+        for (Map.Entry<ChunkId, Pull> e : pulls.entrySet()) {
+            Pull pull = e.getValue();
+            if (pull.holder != null) {
+                continue;
+            }
+            KAddress holder = pickHolder(pull);
+            if (holder == null) {
+                continue;
+            }
+            pull.holder = holder;
+            pull.requestedAt = now;
+            pull.tried.add(holder.getId());
+            inflight.put(holder.getId(), load(holder.getId()) + 1);
+            List<ChunkId> chunks = requests.get(holder);
+            if (chunks == null) {
+                chunks = new ArrayList<>();
+                requests.put(holder, chunks);
+            }
+            chunks.add(e.getKey());
+        }
+        return requests;
+    }
+
+    // least loaded holder with room in its window, among the ones not tried yet for this chunk
+    private KAddress pickHolder(Pull pull) {
+        Map<Identifier, KAddress> holders = new HashMap<>();
+        for (long newsId : pull.waiting) {
+            holders.putAll(bodies.get(newsId).holders);
+        }
+        if (pull.tried.containsAll(holders.keySet())) {
+            pull.tried.clear();
+        }
+        KAddress best = null;
+        for (KAddress holder : holders.values()) {
+            int load = load(holder.getId());
+            if (load >= window || pull.tried.contains(holder.getId())) {
+                continue;
+            }
+            if (best == null || load < load(best.getId())) {
+                best = holder;
+            }
+        }
+        return best;
+    }
+
+    private int load(Identifier holder) {
+        Integer load = inflight.get(holder);
+        return load == null ? 0 : load;
+    }
+
+    private void release(Pull pull) {
+        int load = load(pull.holder.getId()) - 1;
+        if (load <= 0) {
+            inflight.remove(pull.holder.getId());
+        } else {
+            inflight.put(pull.holder.getId(), load);
+        }
+        pull.holder = null;
+    }
+
+    /**
+     * @param data null if the source does not have the chunk
+     * @return the news whose body is now complete
+     */
+    public List<Long> received(ChunkId id, byte[] data, KAddress source, long now) {
+        Pull pull = pulls.get(id);
+        if (pull == null) {
+            //late answer, we got the chunk from another holder already
+            return Collections.emptyList();
+        }
+        if (data != null && !ChunkId.of(data).equals(id)) {
+            rejected++;
+            data = null;
+        }
+        if (data == null) {
+            if (pull.holder != null && pull.holder.getId().equals(source.getId())) {
+                release(pull);
+            }
+            return Collections.emptyList();
+        }
+        if (pull.holder != null) {
+            release(pull);
+        }
+        pulls.remove(id);
+        store.put(id, data);
+        pulledBytes += data.length;
+        List<Long> done = new ArrayList<>();
+        for (long newsId : pull.waiting) {
+            Body body = bodies.get(newsId);
+            body.missing.remove(id);
+            if (body.missing.isEmpty()) {
+                bodies.remove(newsId);
+                done.add(newsId);
+                completed++;
+                completionMillis += now - body.started;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * frees the chunks that waited too long on their holder, and gives up on
+     * the bodies older than maxAge
+     */
+    public void expire(long now) {
+        Iterator<Map.Entry<Long, Body>> bit = bodies.entrySet().iterator();
+        while (bit.hasNext()) {
+            Map.Entry<Long, Body> e = bit.next();
+            if (now - e.getValue().started > maxAge) {
+                for (ChunkId id : e.getValue().missing) {
+                    pulls.get(id).waiting.remove(e.getKey());
+                }
+                bit.remove();
+            }
+        }
+        Iterator<Pull> pit = pulls.values().iterator();
+        while (pit.hasNext()) {
+            Pull pull = pit.next();
+            if (pull.holder != null && (pull.waiting.isEmpty() || now - pull.requestedAt > timeout)) {
+                release(pull);
+            }
+            if (pull.waiting.isEmpty()) {
+                pit.remove();
+            }
+        }
+    }
+
+    /**
+     * @return number of bodies still missing chunks
+     */
+    public int pending() {
+        return bodies.size();
+    }
+
+    private static class Body {
+
+        final long started;
+        final Set<ChunkId> missing = new LinkedHashSet<>();
+        final Map<Identifier, KAddress> holders = new LinkedHashMap<>();
+
+        Body(long started) {
+            this.started = started;
+        }
+    }
+
+    private static class Pull {
+
+        final Set<Long> waiting = new HashSet<>();
+        KAddress holder;
+        long requestedAt;
+        final Set<Identifier> tried = new HashSet<>();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Content address of a body chunk: the SHA-1 of its bytes. Two items sharing
+ * a chunk share its id, so the chunk is only pulled and stored once.
+ */
+public final class ChunkId {
+
+    public static final int LENGTH = 20;
+
+    private final byte[] digest;
+    private final int hash;
+
+    public ChunkId(byte[] digest) {
+        if (digest.length != LENGTH) {
+            throw new IllegalArgumentException("not a chunk digest, length:" + digest.length);
+        }
+        this.digest = digest;
+        this.hash = Arrays.hashCode(digest);
+    }
+
+    public static ChunkId of(byte[] data) {
+        try {
+            return new ChunkId(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public byte[] digest() {
+        return digest.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ChunkId)) {
+            return false;
+        }
+        return Arrays.equals(digest, ((ChunkId) obj).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            sb.append(String.format("%02x", digest[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content addressed store of body chunks, bounded in bytes. The least recently
+ * used chunks are evicted first.
+ */
+public class ChunkStore {
+
+    private final long maxBytes;
+    private final LinkedHashMap<ChunkId, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    public ChunkStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean contains(ChunkId id) {
+        return chunks.containsKey(id);
+    }
+
+    /**
+     * @return the chunk, null if we do not have it
+     */
+    public byte[] get(ChunkId id) {
+        return chunks.get(id);
+    }
+
+    public void put(ChunkId id, byte[] data) {
+        byte[] previous = chunks.put(id, data);
+        if (previous != null) {
+            bytes -= previous.length;
+        }
+        bytes += data.length;
+        Iterator<Map.Entry<ChunkId, byte[]>> it = chunks.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<ChunkId, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(id)) {
+                continue;
+            }
+            bytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+}
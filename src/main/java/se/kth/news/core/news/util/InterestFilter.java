@@ -0,0 +1,109 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Bloom filter over the topics a node subscribed to, advertised in its
+ * {@link NewsView}. A false positive only costs a useless message, a topic of
+ * the node never tests negative. The empty filter matches every topic.
+ */
+public final class InterestFilter {
+
+    public static final InterestFilter ALL = new InterestFilter(new long[0], 0);
+
+    private final long[] words;
+    private final int hashes;
+
+    public InterestFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    public static InterestFilter of(Set<Integer> topics, int bits, int hashes) {
+        if (bits <= 0) {
+            throw new IllegalArgumentException("interest filter needs at least one bit, got:" + bits);
+        }
+        InterestFilter filter = new InterestFilter(new long[(bits + 63) / 64], hashes);
+        for (int topic : topics) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = filter.bit(topic, i);
+                filter.words[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return filter;
+    }
+
+    public boolean matches(int topic) {
+        if (words.length == 0) {
+            return true;
+        }
+        for (int i = 0; i < hashes; i++) {
+            int bit = bit(topic, i);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // double hashing over a murmur3 finalizer of the topic
+    private int bit(int topic, int i) {
+        int h1 = mix(topic);
+        int h2 = mix(h1) | 1;
+        return ((h1 + i * h2) & Integer.MAX_VALUE) % (words.length * 64);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public long[] words() {
+        return words.clone();
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof InterestFilter)) {
+            return false;
+        }
+        InterestFilter that = (InterestFilter) obj;
+        return hashes == that.hashes && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(words) + hashes;
+    }
+
+    @Override
+    public String toString() {
+        return words.length == 0 ? "*" : Long.toHexString(words[0]);
+    }
+}
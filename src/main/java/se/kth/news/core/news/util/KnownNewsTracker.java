@@ -0,0 +1,92 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+
+/**
+ * Remembers which news each neighbour provably has, because it sent them to us
+ * or we sent them to it. Bounded on both axes: the last idsPerPeer ids for each of
+ * the maxPeers most recently used neighbours. Forgetting only costs a redundant
+ * send, never a missed one.
+ */
+public class KnownNewsTracker {
+
+    private final int idsPerPeer;
+    private final Map<Identifier, RecentIds> peers;
+
+    public KnownNewsTracker(final int maxPeers, int idsPerPeer) {
+        this.idsPerPeer = idsPerPeer;
+        this.peers = new LinkedHashMap<Identifier, RecentIds>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Identifier, RecentIds> eldest) {
+                return size() > maxPeers;
+            }
+        };
+    }
+
+    public void record(Identifier peer, long newsId) {
+        RecentIds ids = peers.get(peer);
+        if (ids == null) {
+            ids = new RecentIds(idsPerPeer);
+            peers.put(peer, ids);
+        }
+        ids.add(newsId);
+    }
+
+    public boolean knows(Identifier peer, long newsId) {
+        RecentIds ids = peers.get(peer);
+        return ids != null && ids.contains(newsId);
+    }
+
+    /**
+     * fixed size ring of ids, the oldest one is overwritten when full
+     */
+    private static class RecentIds {
+
+        private final long[] ids;
+        private int next = 0;
+        private int size = 0;
+
+        RecentIds(int capacity) {
+            ids = new long[capacity];
+        }
+
+        void add(long id) {
+            if (contains(id)) {
+                return;
+            }
+            ids[next] = id;
+            next = (next + 1) % ids.length;
+            if (size < ids.length) {
+                size++;
+            }
+        }
+
+        boolean contains(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import se.kth.news.core.news.News;
+
+/**
+ * Position of a node in the leader-sequenced news log: the last log position
+ * (see {@link News#logPosition}) up to which the node has every entry, plus the
+ * entries received above it. Within a term the positions follow each other; the
+ * first entry of a later term follows once nothing of the earlier term is left
+ * waiting above the contiguous mark, since the tail of an old term is not known.
+ * Unlike {@link SequenceWindow} it does not skip a gap on its own, the gap is what
+ * catch-up asks for, and only one that survived several catch-up rounds is given up.
+ */
+public class LogCursor {
+
+    private long contiguous;
+    private final TreeSet<Long> above = new TreeSet<>();
+    //catch-up rounds the contiguous mark did not move while a gap was open
+    private int stalledRounds = 0;
+    private long roundMark;
+    private int skipped = 0;
+
+    public LogCursor() {
+        this(-1);
+    }
+
+    public LogCursor(long contiguous) {
+        this.contiguous = contiguous;
+        this.roundMark = contiguous;
+    }
+
+    public void add(long logPosition) {
+        if (logPosition <= contiguous) {
+            return;
+        }
+        above.add(logPosition);
+        advance();
+    }
+
+    private void advance() {
+        while (!above.isEmpty() && follows(above.first())) {
+            contiguous = above.pollFirst();
+        }
+    }
+
+    private boolean follows(long logPosition) {
+        if (News.termOf(logPosition) == News.termOf(contiguous)) {
+            return News.logSeqOf(logPosition) == News.logSeqOf(contiguous) + 1;
+        }
+        return News.logSeqOf(logPosition) == 0;
+    }
+
+    public long contiguous() {
+        return contiguous;
+    }
+
+    /**
+     * @return the lowest max entries received above the contiguous mark
+     */
+    public List<Long> held(int max) {
+        List<Long> held = new ArrayList<>();
+        for (long logPosition : above) {
+            if (held.size() == max) {
+                break;
+            }
+            held.add(logPosition);
+        }
+        return held;
+    }
+
+    /**
+     * Called once per catch-up round. A gap nobody could fill for retries rounds
+     * in a row (its entries fell out of every retention window, or were never
+     * sent) is given up: the cursor jumps to the next entry it has.
+     * @return true if a gap was given up
+     */
+    public boolean round(int retries) {
+        if (above.isEmpty() || contiguous != roundMark) {
+            stalledRounds = 0;
+            roundMark = contiguous;
+            return false;
+        }
+        if (++stalledRounds < retries) {
+            return false;
+        }
+        contiguous = above.pollFirst();
+        advance();
+        stalledRounds = 0;
+        roundMark = contiguous;
+        skipped++;
+        return true;
+    }
+
+    /**
+     * @return number of gaps given up so far
+     */
+    public int skipped() {
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        return News.termOf(contiguous) + ":" + News.logSeqOf(contiguous) + "+" + above.size();
+    }
+}
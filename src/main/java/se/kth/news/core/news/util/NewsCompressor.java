@@ -0,0 +1,269 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import se.kth.news.core.news.CompressedNews;
+import se.kth.news.core.news.NewsBatch;
+import se.kth.news.core.news.NewsDelta;
+import se.kth.news.core.news.NewsRangeResponse;
+import se.kth.news.core.news.NewsSnapshotChunk;
+import se.kth.news.core.news.serializer.NewsMsgSerializer;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+
+/**
+ * Deflate stage for bulk news messages. Messages under the size threshold are
+ * left alone. The preset dictionary is rebuilt from the last dictionaryTitles
+ * titles seen every time that many new titles have gone by, and shipped inline to
+ * each neighbour once per dictionary. A receiver that missed the dictionary
+ * drops the message and reports the miss, the next message to it inlines the
+ * dictionary again; anti-entropy or catch-up will bring the dropped news again.
+ * The inlined dictionary counts in the compressed size, a message that only
+ * shrinks without it is sent uncompressed.
+ */
+public class NewsCompressor {
+
+    private static final byte BATCH = 1;
+    private static final byte DELTA = 2;
+    private static final byte RANGE = 3;
+    private static final byte SNAPSHOT = 4;
+    private static final int MAX_PEERS = 64;
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    //larger raw lengths are not compressed, and rejected before allocating on the receiving side
+    public static final int MAX_RAW_SIZE = 4 * 1024 * 1024;
+
+    private final int threshold;
+    private final int dictionaryTitles;
+    private final ArrayDeque<String> recentTitles = new ArrayDeque<>();
+    private int titlesSinceRebuild = 0;
+    private byte[] dictionary = null;
+    private int dictionaryId = 0;
+    //dictionary last shipped to each neighbour
+    private final Map<Identifier, Integer> shipped = lru();
+    //dictionaries received from the neighbours, by id
+    private final Map<Integer, byte[]> received = lru();
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+    private final NewsMsgSerializer.Batch batchSerializer = new NewsMsgSerializer.Batch(0);
+    private final NewsMsgSerializer.Delta deltaSerializer = new NewsMsgSerializer.Delta(0);
+    private final NewsMsgSerializer.RangeResponse rangeSerializer = new NewsMsgSerializer.RangeResponse(0);
+    private final NewsMsgSerializer.SnapshotChunk snapshotSerializer = new NewsMsgSerializer.SnapshotChunk(0);
+    //metrics: bytes before and after compression of what was compressed, time spent
+    public long rawBytes = 0;
+    public long compressedBytes = 0;
+    public long compressionNanos = 0;
+
+    public NewsCompressor(int threshold, int dictionaryTitles) {
+        this.threshold = threshold;
+        this.dictionaryTitles = dictionaryTitles;
+    }
+
+    private static <K, V> Map<K, V> lru() {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MAX_PEERS;
+            }
+        };
+    }
+
+    public void observeTitle(String title) {
+        recentTitles.addLast(title);
+        if (recentTitles.size() > dictionaryTitles) {
+            recentTitles.removeFirst();
+        }
+        titlesSinceRebuild++;
+        if (titlesSinceRebuild >= dictionaryTitles) {
+            rebuildDictionary();
+        }
+    }
+
+    private void rebuildDictionary() {
+        titlesSinceRebuild = 0;
+        StringBuilder sb = new StringBuilder();
+        for (String title : recentTitles) {
+            sb.append(title);
+        }
+        byte[] dict = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (dict.length > MAX_DICTIONARY_SIZE) {
+            //deflate favours the end of the dictionary, keep the most recent titles
+            byte[] tail = new byte[MAX_DICTIONARY_SIZE];
+            System.arraycopy(dict, dict.length - MAX_DICTIONARY_SIZE, tail, 0, MAX_DICTIONARY_SIZE);
+            dict = tail;
+        }
+        Adler32 adler = new Adler32();
+        adler.update(dict);
+        dictionary = dict;
+        dictionaryId = (int) adler.getValue();
+    }
+
+    /**
+     * @return the compressed message, null if msg is too small or does not shrink
+     */
+    public CompressedNews compress(Identifier target, Object msg) {
+        byte[] raw = encode(msg);
+        if (raw.length < threshold || raw.length > MAX_RAW_SIZE) {
+            return null;
+        }
+        long start = System.nanoTime();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            out.write(chunk, 0, n);
+        }
+        byte[] payload = out.toByteArray();
+        compressionNanos += System.nanoTime() - start;
+        byte[] inlineDictionary = null;
+        if (dictionary != null) {
+            Integer shippedId = shipped.get(target);
+            if (shippedId == null || shippedId != dictionaryId) {
+                inlineDictionary = dictionary;
+            }
+        }
+        int size = payload.length + (inlineDictionary == null ? 0 : inlineDictionary.length);
+        if (size >= raw.length) {
+            return null;
+        }
+        if (inlineDictionary != null) {
+            shipped.put(target, dictionaryId);
+        }
+        rawBytes += raw.length;
+        compressedBytes += size;
+        return new CompressedNews(dictionaryId, inlineDictionary, raw.length, payload);
+    }
+
+    /**
+     * The target reported it does not have the dictionary, it goes inline again.
+     */
+    public void dictionaryMissed(Identifier target, int missedId) {
+        Integer shippedId = shipped.get(target);
+        if (shippedId != null && shippedId == missedId) {
+            shipped.remove(target);
+        }
+    }
+
+    /**
+     * @return true if msg could not be decompressed for lack of its dictionary
+     */
+    public boolean missingDictionary(CompressedNews msg) {
+        return msg.dictionary == null && msg.dictionaryId != 0 && !received.containsKey(msg.dictionaryId);
+    }
+
+    /**
+     * @return the original message, null if its dictionary is unknown or the payload corrupt
+     */
+    public Object decompress(CompressedNews msg) {
+        if (msg.dictionary != null) {
+            received.put(msg.dictionaryId, msg.dictionary);
+        }
+        if (msg.rawLength < 0 || msg.rawLength > MAX_RAW_SIZE) {
+            return null;
+        }
+        long start = System.nanoTime();
+        byte[] raw = new byte[msg.rawLength];
+        try {
+            inflater.reset();
+            inflater.setInput(msg.payload);
+            int read = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsDictionary()) {
+                    byte[] dict = received.get(msg.dictionaryId);
+                    if (dict == null) {
+                        return null;
+                    }
+                    inflater.setDictionary(dict);
+                }
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && inflater.needsInput()) {
+                    return null;
+                }
+                read += n;
+            }
+        } catch (DataFormatException | IllegalArgumentException ex) {
+            return null;
+        } finally {
+            compressionNanos += System.nanoTime() - start;
+        }
+        return decode(raw);
+    }
+
+    private byte[] encode(Object msg) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            if (msg instanceof NewsBatch) {
+                buf.writeByte(BATCH);
+                batchSerializer.toBinary(msg, buf);
+            } else if (msg instanceof NewsDelta) {
+                buf.writeByte(DELTA);
+                deltaSerializer.toBinary(msg, buf);
+            } else if (msg instanceof NewsRangeResponse) {
+                buf.writeByte(RANGE);
+                rangeSerializer.toBinary(msg, buf);
+            } else if (msg instanceof NewsSnapshotChunk) {
+                buf.writeByte(SNAPSHOT);
+                snapshotSerializer.toBinary(msg, buf);
+            } else {
+                throw new IllegalArgumentException("not a bulk news message:" + msg);
+            }
+            byte[] raw = new byte[buf.readableBytes()];
+            buf.readBytes(raw);
+            return raw;
+        } finally {
+            buf.release();
+        }
+    }
+
+    private Object decode(byte[] raw) {
+        ByteBuf buf = Unpooled.wrappedBuffer(raw);
+        try {
+            byte kind = buf.readByte();
+            switch (kind) {
+                case BATCH:
+                    return batchSerializer.fromBinary(buf, Optional.<Object>absent());
+                case DELTA:
+                    return deltaSerializer.fromBinary(buf, Optional.<Object>absent());
+                case RANGE:
+                    return rangeSerializer.fromBinary(buf, Optional.<Object>absent());
+                case SNAPSHOT:
+                    return snapshotSerializer.fromBinary(buf, Optional.<Object>absent());
+                default:
+                    return null;
+            }
+        } finally {
+            buf.release();
+        }
+    }
+}
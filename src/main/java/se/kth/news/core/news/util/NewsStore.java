@@ -0,0 +1,163 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import se.kth.news.core.news.News;
+
+/**
+ * Bounded store of news bodies, kept in arrival order. The earliest arrivals are
+ * evicted once the store holds more than maxSize items, and any item once its
+ * publication time is more than maxAge ms old.
+ * Deduplication does not depend on this store, see {@link NewsWatermarks}.
+ * The items are also indexed by publication time and by writer stream, so that
+ * queries cost O(log n + k) for k results whatever the size of the store.
+ */
+public class NewsStore implements Iterable<News> {
+
+    private final int maxSize;
+    private final long maxAge;
+    private static final Comparator<News> BY_TIME = new Comparator<News>() {
+        @Override
+        public int compare(News n1, News n2) {
+            int cmp = Long.compare(n1.getTimestamp(), n2.getTimestamp());
+            return cmp != 0 ? cmp : Long.compare(n1.getId(), n2.getId());
+        }
+    };
+
+    private final ArrayDeque<News> news = new ArrayDeque<>();
+    private final TreeSet<News> byTime = new TreeSet<>(BY_TIME);
+    private final Map<Integer, TreeMap<Integer, News>> byWriter = new HashMap<>();
+
+    public NewsStore(int maxSize, long maxAge) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+    }
+
+    public void add(News item, long now) {
+        news.addLast(item);
+        byTime.add(item);
+        TreeMap<Integer, News> stream = byWriter.get(item.getWriterId());
+        if (stream == null) {
+            stream = new TreeMap<>();
+            byWriter.put(item.getWriterId(), stream);
+        }
+        stream.put(item.getSeq(), item);
+        evict(now);
+    }
+
+    public void evict(long now) {
+        while (news.size() > maxSize) {
+            unindex(news.removeFirst());
+        }
+        // by publication time: an old item caught up late is not behind the ones that arrived before it
+        while (!byTime.isEmpty() && now - byTime.first().getTimestamp() > maxAge) {
+            News item = byTime.first();
+            unindex(item);
+            // at the head of the arrival order unless it came late
+            news.removeFirstOccurrence(item);
+        }
+    }
+
+    private void unindex(News item) {
+        byTime.remove(item);
+        TreeMap<Integer, News> stream = byWriter.get(item.getWriterId());
+        if (stream == null) {
+            return;
+        }
+        stream.remove(item.getSeq());
+        if (stream.isEmpty()) {
+            byWriter.remove(item.getWriterId());
+        }
+    }
+
+    /**
+     * @return the n news with the highest publication time, newest first
+     */
+    public List<News> latest(int n) {
+        return take(byTime.descendingSet(), n);
+    }
+
+    /**
+     * @return the news of writerId from sequence number fromSeq included, in sequence order, at most limit of them
+     */
+    public List<News> fromWriter(int writerId, int fromSeq, int limit) {
+        TreeMap<Integer, News> stream = byWriter.get(writerId);
+        if (stream == null) {
+            return Collections.emptyList();
+        }
+        return take(stream.tailMap(fromSeq, true).values(), limit);
+    }
+
+    /**
+     * @return the news published between from and to (ms, both included), oldest first, at most limit of them
+     */
+    public List<News> between(long from, long to, int limit) {
+        if (from > to) {
+            return Collections.emptyList();
+        }
+        NavigableSet<News> range = byTime.subSet(probe(from, Long.MIN_VALUE), true, probe(to, Long.MAX_VALUE), true);
+        return take(range, limit);
+    }
+
+    // compares as the first (or last) possible news at that time
+    private static News probe(long timestamp, long newsId) {
+        return new News(newsId, null, timestamp, 0);
+    }
+
+    private static List<News> take(Iterable<News> items, int limit) {
+        List<News> result = new ArrayList<>();
+        Iterator<News> it = items.iterator();
+        while (it.hasNext() && result.size() < limit) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * @return the n most recently added news, oldest first
+     */
+    public List<News> recent(int n) {
+        List<News> recent = new ArrayList<>(Math.min(n, news.size()));
+        Iterator<News> it = news.descendingIterator();
+        while (it.hasNext() && recent.size() < n) {
+            recent.add(it.next());
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    public int size() {
+        return news.size();
+    }
+
+    @Override
+    public Iterator<News> iterator() {
+        return news.iterator();
+    }
+}
@@ -18,6 +18,10 @@
  */
 package se.kth.news.core.news.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import se.kth.news.core.news.News;
 import se.sics.ktoolbox.util.identifiable.Identifier;
 import se.sics.ktoolbox.util.update.View;
 
@@ -28,18 +32,58 @@ public class NewsView implements View {
     
     public final int localNewsCount;
     public final Identifier nodeId; //view tie breaker
+    //optional summary, completeness is -1 and the arrays empty without it
+    public final long completeness;
+    //positions of the node in the streams of its most advanced writers, see NewsWatermarks.position
+    public final int[] summaryWriters;
+    public final int[] summaryPositions;
+    //ids of the most recent news of the node, or the news themselves, riding along the overlay shuffles,
+    //both empty when piggybacking is off
+    public final long[] recentIds;
+    public final List<News> recent;
+    //topics the node subscribed to, InterestFilter.ALL when it takes everything
+    public final InterestFilter interest;
     
     public NewsView(Identifier nodeId, int localNewsCount) {
+        this(nodeId, localNewsCount, -1, new int[0], new int[0]);
+    }
+    
+    public NewsView(Identifier nodeId, int localNewsCount, long completeness, int[] summaryWriters, int[] summaryPositions) {
+        this(nodeId, localNewsCount, completeness, summaryWriters, summaryPositions, new long[0],
+                Collections.<News>emptyList(), InterestFilter.ALL);
+    }
+    
+    public NewsView(Identifier nodeId, int localNewsCount, long completeness, int[] summaryWriters, int[] summaryPositions,
+            long[] recentIds, List<News> recent, InterestFilter interest) {
         this.nodeId = nodeId;
         this.localNewsCount = localNewsCount;
+        this.completeness = completeness;
+        this.summaryWriters = summaryWriters;
+        this.summaryPositions = summaryPositions;
+        this.recentIds = recentIds;
+        this.recent = recent;
+        this.interest = interest;
     }
     
     public NewsView copy() {
-        return new NewsView(nodeId, localNewsCount);
+        return new NewsView(nodeId, localNewsCount, completeness, summaryWriters.clone(), summaryPositions.clone(),
+                recentIds.clone(), new ArrayList<News>(recent), interest);
+    }
+    
+    /**
+     * @return true if the summary shows the node further than us in the stream of some writer
+     */
+    public boolean aheadOf(NewsWatermarks watermarks) {
+        for (int i = 0; i < summaryWriters.length; i++) {
+            if (summaryPositions[i] > watermarks.position(summaryWriters[i])) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
     public String toString() {
-        return "News<" + nodeId + "; size "+ localNewsCount + ">";
+        return "News<" + nodeId + "; size "+ localNewsCount + (completeness >= 0 ? "; completeness " + completeness : "") + ">";
     }
 }
@@ -19,6 +19,7 @@
 package se.kth.news.core.news.util;
 
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import java.util.Comparator;
 
 /**
@@ -33,6 +34,10 @@ public class NewsViewComparator implements Comparator<NewsView> {
         if(o1 == null || o2 == null) {
             throw new NullPointerException();
         }
+        // rank by completeness when both views carry a summary
+        if(o1.completeness >= 0 && o2.completeness >= 0 && o1.completeness != o2.completeness) {
+            return Longs.compare(o1.completeness, o2.completeness);
+        }
         if(o1.localNewsCount != o2.localNewsCount) {
             return Ints.compare(o1.localNewsCount, o2.localNewsCount);
         }
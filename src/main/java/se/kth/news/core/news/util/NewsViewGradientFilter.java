@@ -31,9 +31,10 @@ public class NewsViewGradientFilter implements GradientFilter<NewsView>{
         return true;
     }
 
+    // our rank went down (restart, recovery from an older log): the neighbours picked for the old rank are stale
     @Override
     public boolean cleanOldView(NewsView newSelfPV, NewsView oldSelfPV) {
-        return false;
+        return newSelfPV.completeness >= 0 && oldSelfPV.completeness >= 0 && newSelfPV.completeness < oldSelfPV.completeness;
     }
     
 }
@@ -0,0 +1,116 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import se.kth.news.core.news.News;
+
+/**
+ * Version vector over news ids: one {@link SequenceWindow} per writer.
+ * Size is O(writers), independent of how many items have been published.
+ */
+public class NewsWatermarks {
+
+    private final Map<Integer, SequenceWindow> writers;
+
+    public NewsWatermarks() {
+        this.writers = new HashMap<>();
+    }
+
+    private NewsWatermarks(Map<Integer, SequenceWindow> writers) {
+        this.writers = writers;
+    }
+
+    /**
+     * @return true if the news id had not been seen before
+     */
+    public boolean add(long newsId) {
+        int writerId = News.writerOf(newsId);
+        SequenceWindow sw = writers.get(writerId);
+        if (sw == null) {
+            sw = new SequenceWindow();
+            writers.put(writerId, sw);
+        }
+        return sw.add(News.seqOf(newsId));
+    }
+
+    public boolean contains(long newsId) {
+        SequenceWindow sw = writers.get(News.writerOf(newsId));
+        return sw != null && sw.contains(News.seqOf(newsId));
+    }
+
+    public Set<Integer> writers() {
+        return writers.keySet();
+    }
+
+    public SequenceWindow get(int writerId) {
+        return writers.get(writerId);
+    }
+
+    public void put(int writerId, SequenceWindow sw) {
+        writers.put(writerId, sw);
+    }
+
+    /**
+     * @return how far we are in the stream of writerId: up to the highest seq
+     * seen, less what we miss of the latest items, 0 for an unknown writer
+     */
+    public int position(int writerId) {
+        SequenceWindow sw = writers.get(writerId);
+        return sw == null ? 0 : sw.highest() + 1 - sw.recentMissing();
+    }
+
+    /**
+     * @return sum of the positions over all writers; old gaps do not count, so
+     * unlike {@link #count} a node that got every recent item scores above one
+     * that got many old ones
+     */
+    public long completeness() {
+        long completeness = 0;
+        for (int writerId : writers.keySet()) {
+            completeness += position(writerId);
+        }
+        return completeness;
+    }
+
+    /**
+     * @return number of distinct news received
+     */
+    public int count() {
+        int count = 0;
+        for (SequenceWindow sw : writers.values()) {
+            count += sw.received();
+        }
+        return count;
+    }
+
+    public NewsWatermarks copy() {
+        Map<Integer, SequenceWindow> writersCopy = new HashMap<>();
+        for (Map.Entry<Integer, SequenceWindow> e : writers.entrySet()) {
+            writersCopy.put(e.getKey(), e.getValue().copy());
+        }
+        return new NewsWatermarks(writersCopy);
+    }
+
+    @Override
+    public String toString() {
+        return writers.toString();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import se.kth.news.core.news.News;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Leader side of the sequenced log. Submissions wait here until they are
+ * sealed in a batch, which takes a contiguous range of log sequence numbers of
+ * the leader term and is replicated to the gradient neighbours of the leader. Up to depth batches
+ * may wait for a majority of acks at once; a batch not acked within timeout ms
+ * frees its slot anyway, the catch-up repairs what a replica missed.
+ */
+public class OrderPipeline {
+
+    private final int batchSize;
+    private final int depth;
+    private final long timeout;
+    //waiting to be sealed, by news id, with the node that submitted them
+    private final Map<Long, Submission> pending = new LinkedHashMap<>();
+    //sealed and not acked by a majority yet, by first log sequence number
+    private final TreeMap<Integer, Batch> inFlight = new TreeMap<>();
+    //metrics
+    public long sequenced = 0;
+    public int batches = 0;
+    public int committed = 0;
+    public int timedOut = 0;
+    public long commitMillis = 0;
+
+    public OrderPipeline(int batchSize, int depth, long timeout) {
+        this.batchSize = batchSize;
+        this.depth = depth;
+        this.timeout = timeout;
+    }
+
+    public static class Submission {
+
+        public final News news;
+        //null for the news of the leader itself
+        public final KAddress source;
+
+        Submission(News news, KAddress source) {
+            this.news = news;
+            this.source = source;
+        }
+    }
+
+    public static class Batch {
+
+        public final int term;
+        public final int firstLogSeq;
+        public final List<Submission> submissions;
+        final long sealed;
+        final int quorum;
+        final Set<Identifier> acks = new HashSet<>();
+
+        Batch(int term, int firstLogSeq, List<Submission> submissions, long sealed, int quorum) {
+            this.term = term;
+            this.firstLogSeq = firstLogSeq;
+            this.submissions = submissions;
+            this.sealed = sealed;
+            this.quorum = quorum;
+        }
+
+        public List<News> news() {
+            List<News> news = new ArrayList<>(submissions.size());
+            for (Submission submission : submissions) {
+                news.add(submission.news);
+            }
+            return news;
+        }
+    }
+
+    /**
+     * @return false if the news is already waiting
+     */
+    public boolean submit(News news, KAddress source) {
+        if (pending.containsKey(news.getId())) {
+            return false;
+        }
+        pending.put(news.getId(), new Submission(news, source));
+        return true;
+    }
+
+    public boolean full() {
+        return pending.size() >= batchSize;
+    }
+
+    /**
+     * Seals up to batchSize waiting news, numbered from nextLogSeq on in the given term.
+     * @param quorum acks that commit the batch, 0 commits it right away
+     * @return null if nothing waits or every slot is taken
+     */
+    public Batch seal(int term, int nextLogSeq, int quorum, long now) {
+        if (pending.isEmpty() || inFlight.size() >= depth) {
+            return null;
+        }
+        List<Submission> submissions = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Submission> it = pending.values().iterator();
+        while (it.hasNext() && submissions.size() < batchSize) {
+            Submission submission = it.next();
+            it.remove();
+            News news = submission.news.withLogSeq(term, nextLogSeq + submissions.size());
+            submissions.add(new Submission(news, submission.source));
+        }
+        Batch batch = new Batch(term, nextLogSeq, submissions, now, quorum);
+        sequenced += submissions.size();
+        batches++;
+        if (quorum > 0) {
+            inFlight.put(nextLogSeq, batch);
+        } else {
+            committed++;
+        }
+        return batch;
+    }
+
+    /**
+     * @return true if the ack committed its batch, freeing a slot
+     */
+    public boolean ack(int firstLogSeq, Identifier replica, long now) {
+        Batch batch = inFlight.get(firstLogSeq);
+        if (batch == null) {
+            return false;
+        }
+        batch.acks.add(replica);
+        if (batch.acks.size() < batch.quorum) {
+            return false;
+        }
+        inFlight.remove(firstLogSeq);
+        committed++;
+        commitMillis += now - batch.sealed;
+        return true;
+    }
+
+    /**
+     * @return number of batches that gave up waiting for their acks
+     */
+    public int expire(long now) {
+        int expired = 0;
+        Iterator<Batch> it = inFlight.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().sealed > timeout) {
+                it.remove();
+                expired++;
+            }
+        }
+        timedOut += expired;
+        return expired;
+    }
+
+    /**
+     * Forgets the batches in flight, when the leadership is lost or a new term
+     * starts numbering from 0 again.
+     * @return the news that were never sealed
+     */
+    public List<Submission> drain() {
+        inFlight.clear();
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Submission> drained = new ArrayList<>(pending.values());
+        pending.clear();
+        return drained;
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
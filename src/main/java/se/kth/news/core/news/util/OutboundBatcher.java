@@ -0,0 +1,88 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import se.kth.news.core.news.News;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Per neighbour queues of outgoing news. A queue is handed back to the caller
+ * as soon as it reaches maxBatchSize, the rest is collected on the periodic flush.
+ */
+public class OutboundBatcher {
+
+    private final int maxBatchSize;
+    private Map<Identifier, Batch> pending = new LinkedHashMap<>();
+
+    public OutboundBatcher(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * A news already waiting for target is not added twice, the neighbour only
+     * counts as knowing it once the batch is sent.
+     * @return the full batch for target if this item completed it, null otherwise
+     */
+    public Batch add(KAddress target, News news) {
+        Batch batch = pending.get(target.getId());
+        if (batch == null) {
+            batch = new Batch(target);
+            pending.put(target.getId(), batch);
+        }
+        for (News queued : batch.news) {
+            if (queued.getId() == news.getId()) {
+                return null;
+            }
+        }
+        batch.news.add(news);
+        if (batch.news.size() >= maxBatchSize) {
+            pending.remove(target.getId());
+            return batch;
+        }
+        return null;
+    }
+
+    /**
+     * @return all pending batches, the batcher is empty afterwards
+     */
+    public Collection<Batch> drain() {
+        Collection<Batch> batches = pending.values();
+        pending = new LinkedHashMap<>();
+        return batches;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public static class Batch {
+
+        public final KAddress target;
+        public final List<News> news = new ArrayList<>();
+
+        public Batch(KAddress target) {
+            this.target = target;
+        }
+    }
+}
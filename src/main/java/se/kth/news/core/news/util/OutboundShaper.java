@@ -0,0 +1,207 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import se.kth.news.core.news.OutboundPriority;
+import se.kth.news.core.news.OverflowPolicy;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.network.KAddress;
+
+/**
+ * Rate limits outgoing messages with a token bucket for the whole node and one
+ * per neighbour. A message without tokens waits in a bounded queue, one FIFO per
+ * {@link OutboundPriority}, and the most urgent class is released first as tokens
+ * come back; a message held by its neighbour's bucket does not hold back the ones
+ * for other neighbours. A full queue first evicts from a less urgent class than
+ * the arriving message, then drops according to the {@link OverflowPolicy}.
+ * Messages of an expiring class are dropped once they waited longer than expiry ms.
+ */
+public class OutboundShaper {
+
+    private final double neighbourRate;
+    private final double neighbourBurst;
+    private final int maxNeighbours;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long expiry;
+    private final TokenBucket nodeBucket;
+    private final Map<Identifier, TokenBucket> neighbourBuckets;
+    private final List<LinkedList<Pending>> queues = new ArrayList<>();
+    //number of queued messages of each class, per neighbour that has some
+    private final Map<Identifier, int[]> waiting = new HashMap<>();
+    private int depth = 0;
+    //metrics
+    public int maxDepth = 0;
+    public int dropped = 0;
+    public int expired = 0;
+
+    public OutboundShaper(double nodeRate, double nodeBurst, double neighbourRate, double neighbourBurst,
+            int maxNeighbours, int capacity, OverflowPolicy policy, long expiry, long now) {
+        this.neighbourRate = neighbourRate;
+        this.neighbourBurst = neighbourBurst;
+        this.maxNeighbours = maxNeighbours;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.expiry = expiry;
+        this.nodeBucket = new TokenBucket(nodeRate, nodeBurst, now);
+        this.neighbourBuckets = new LinkedHashMap<Identifier, TokenBucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Identifier, TokenBucket> eldest) {
+                return size() > OutboundShaper.this.maxNeighbours;
+            }
+        };
+        for (int i = 0; i < OutboundPriority.values().length; i++) {
+            queues.add(new LinkedList<Pending>());
+        }
+    }
+
+    private TokenBucket bucket(Identifier target, long now) {
+        TokenBucket bucket = neighbourBuckets.get(target);
+        if (bucket == null) {
+            bucket = new TokenBucket(neighbourRate, neighbourBurst, now);
+            neighbourBuckets.put(target, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * @return true if the message can go right away, its tokens are then taken.
+     * Only as urgent or more urgent messages waiting for the same neighbour keep it back.
+     */
+    public boolean admit(KAddress target, OutboundPriority priority, long now) {
+        int[] queued = waiting.get(target.getId());
+        if (queued != null) {
+            for (int i = 0; i <= priority.ordinal(); i++) {
+                if (queued[i] > 0) {
+                    return false;
+                }
+            }
+        }
+        if (!nodeBucket.hasToken(now)) {
+            return false;
+        }
+        TokenBucket bucket = bucket(target.getId(), now);
+        if (!bucket.hasToken(now)) {
+            return false;
+        }
+        nodeBucket.take();
+        bucket.take();
+        return true;
+    }
+
+    /**
+     * queues a message that was not admitted
+     */
+    public void offer(KAddress target, Object content, OutboundPriority priority, long now) {
+        if (depth >= capacity) {
+            dropped++;
+            int victim = leastUrgentNonEmpty();
+            // never make room by evicting a more urgent message
+            if (victim < priority.ordinal()
+                    || (victim == priority.ordinal() && policy == OverflowPolicy.DROP_NEWEST)) {
+                return;
+            }
+            removed(queues.get(victim).removeFirst(), victim);
+        }
+        queues.get(priority.ordinal()).addLast(new Pending(target, content, now));
+        int[] queued = waiting.get(target.getId());
+        if (queued == null) {
+            queued = new int[queues.size()];
+            waiting.put(target.getId(), queued);
+        }
+        queued[priority.ordinal()]++;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void removed(Pending pending, int priority) {
+        depth--;
+        int[] queued = waiting.get(pending.target.getId());
+        queued[priority]--;
+        for (int count : queued) {
+            if (count > 0) {
+                return;
+            }
+        }
+        waiting.remove(pending.target.getId());
+    }
+
+    private int leastUrgentNonEmpty() {
+        for (int i = queues.size() - 1; i > 0; i--) {
+            if (!queues.get(i).isEmpty()) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the queued messages that got their tokens, most urgent class first
+     */
+    public List<Pending> release(long now) {
+        List<Pending> released = new ArrayList<>();
+        for (OutboundPriority priority : OutboundPriority.values()) {
+            Iterator<Pending> it = queues.get(priority.ordinal()).iterator();
+            while (it.hasNext()) {
+                Pending pending = it.next();
+                if (priority.expires && now - pending.queued > expiry) {
+                    it.remove();
+                    removed(pending, priority.ordinal());
+                    expired++;
+                    continue;
+                }
+                if (!nodeBucket.hasToken(now)) {
+                    return released;
+                }
+                TokenBucket bucket = bucket(pending.target.getId(), now);
+                if (bucket.hasToken(now)) {
+                    nodeBucket.take();
+                    bucket.take();
+                    it.remove();
+                    removed(pending, priority.ordinal());
+                    released.add(pending);
+                }
+            }
+        }
+        return released;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public static class Pending {
+
+        public final KAddress target;
+        public final Object content;
+        public final long queued;
+
+        public Pending(KAddress target, Object content, long queued) {
+            this.target = target;
+            this.content = content;
+            this.queued = queued;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks which sequence numbers of a single stream have been seen: a contiguous
+ * high-water mark plus a 64 slot window of out-of-order arrivals above it.
+ * A sequence number that lands beyond the window pushes the mark forward; the
+ * seqs it jumps over without having received them are kept as gaps below the
+ * mark, stored as ranges so that one long jump costs a single entry. A gap seq
+ * is not seen until it arrives, so it still shows in the digests and can be
+ * pulled again. Peers do not keep old items forever, so a gap that falls
+ * GAP_HORIZON seqs behind the mark, or beyond the MAX_GAPS most recent ones,
+ * is given up and counts as seen: the state stays bounded per writer.
+ */
+public class SequenceWindow {
+
+    public static final int WINDOW_SIZE = 64;
+    public static final int MAX_GAPS = 16;
+    public static final int GAP_HORIZON = 1024;
+
+    //every seq <= contiguous is seen but the gaps, -1 when nothing is
+    private int contiguous;
+    //bit i stands for seq contiguous + 1 + i
+    private long window;
+    private int received;
+    //seqs <= contiguous not received, first seq of each range to its last
+    private final TreeMap<Integer, Integer> gaps;
+
+    public SequenceWindow() {
+        this(-1, 0, 0);
+    }
+
+    public SequenceWindow(int contiguous, long window, int received) {
+        this(contiguous, window, received, new TreeMap<Integer, Integer>());
+    }
+
+    public SequenceWindow(int contiguous, long window, int received, TreeMap<Integer, Integer> gaps) {
+        this.contiguous = contiguous;
+        this.window = window;
+        this.received = received;
+        this.gaps = gaps;
+    }
+
+    /**
+     * @return true if seq had not been seen before
+     */
+    public boolean add(int seq) {
+        if (seq <= contiguous) {
+            return fillGap(seq);
+        }
+        int offset = seq - contiguous - 1;
+        if (offset >= WINDOW_SIZE) {
+            int shift = offset - WINDOW_SIZE + 1;
+            // the slots pushed out below the mark that never got their seq
+            for (int i = 0; i < Math.min(shift, WINDOW_SIZE); i++) {
+                if ((window & (1L << i)) == 0) {
+                    addGap(contiguous + 1 + i, contiguous + 1 + i);
+                }
+            }
+            if (shift > WINDOW_SIZE) {
+                addGap(contiguous + 1 + WINDOW_SIZE, contiguous + shift);
+            }
+            contiguous += shift;
+            window = shift >= WINDOW_SIZE ? 0 : window >>> shift;
+            offset = WINDOW_SIZE - 1;
+            pruneGaps();
+        }
+        long bit = 1L << offset;
+        if ((window & bit) != 0) {
+            return false;
+        }
+        window |= bit;
+        received++;
+        while ((window & 1L) != 0) {
+            contiguous++;
+            window >>>= 1;
+        }
+        return true;
+    }
+
+    // merges with the range ending right before first, if any
+    private void addGap(int first, int last) {
+        Map.Entry<Integer, Integer> before = gaps.floorEntry(first);
+        if (before != null && before.getValue() == first - 1) {
+            gaps.put(before.getKey(), last);
+        } else {
+            gaps.put(first, last);
+        }
+    }
+
+    // the oldest gaps are given up first
+    private void pruneGaps() {
+        while (!gaps.isEmpty() && (gaps.size() > MAX_GAPS || gaps.firstEntry().getValue() <= contiguous - GAP_HORIZON)) {
+            gaps.pollFirstEntry();
+        }
+    }
+
+    private boolean fillGap(int seq) {
+        Map.Entry<Integer, Integer> gap = gaps.floorEntry(seq);
+        if (gap == null || gap.getValue() < seq) {
+            return false;
+        }
+        gaps.remove(gap.getKey());
+        if (gap.getKey() < seq) {
+            gaps.put(gap.getKey(), seq - 1);
+        }
+        if (seq < gap.getValue()) {
+            gaps.put(seq + 1, gap.getValue());
+        }
+        received++;
+        return true;
+    }
+
+    public boolean contains(int seq) {
+        if (seq <= contiguous) {
+            Map.Entry<Integer, Integer> gap = gaps.floorEntry(seq);
+            return gap == null || gap.getValue() < seq;
+        }
+        int offset = seq - contiguous - 1;
+        return offset < WINDOW_SIZE && (window & (1L << offset)) != 0;
+    }
+
+    public int contiguous() {
+        return contiguous;
+    }
+
+    public long window() {
+        return window;
+    }
+
+    /**
+     * @return the unreceived ranges below the mark still worth pulling, first seq
+     * to last seq, at most MAX_GAPS of them, not to be modified
+     */
+    public TreeMap<Integer, Integer> gaps() {
+        return gaps;
+    }
+
+    /**
+     * @return number of seqs below the mark that were not received
+     */
+    public int missing() {
+        int missing = 0;
+        for (Map.Entry<Integer, Integer> gap : gaps.entrySet()) {
+            missing += gap.getValue() - gap.getKey() + 1;
+        }
+        return missing;
+    }
+
+    /**
+     * @return number of seqs not received among the WINDOW_SIZE ending at the
+     * highest one seen, older gaps do not count
+     */
+    public int recentMissing() {
+        int highest = highest();
+        int missing = 0;
+        for (int seq = Math.max(0, highest - WINDOW_SIZE + 1); seq <= highest; seq++) {
+            if (!contains(seq)) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @return highest seq seen, -1 if none
+     */
+    public int highest() {
+        return contiguous + WINDOW_SIZE - Long.numberOfLeadingZeros(window);
+    }
+
+    /**
+     * @return number of distinct seqs actually received
+     */
+    public int received() {
+        return received;
+    }
+
+    public SequenceWindow copy() {
+        return new SequenceWindow(contiguous, window, received, new TreeMap<>(gaps));
+    }
+
+    @Override
+    public String toString() {
+        return contiguous + "+" + Long.bitCount(window) + (gaps.isEmpty() ? "" : "-" + gaps);
+    }
+}
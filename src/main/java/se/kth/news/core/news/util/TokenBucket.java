@@ -0,0 +1,61 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+/**
+ * Classic token bucket: refills at rate tokens per second up to burst tokens,
+ * one token per message. A rate of 0 means unlimited.
+ */
+public class TokenBucket {
+
+    private final double rate;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double rate, double burst, long now) {
+        this.rate = rate;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = now;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1000);
+            lastRefill = now;
+        }
+    }
+
+    public boolean hasToken(long now) {
+        if (rate <= 0) {
+            return true;
+        }
+        refill(now);
+        return tokens >= 1;
+    }
+
+    /**
+     * only call after {@link #hasToken} said yes
+     */
+    public void take() {
+        if (rate > 0) {
+            tokens -= 1;
+        }
+    }
+}
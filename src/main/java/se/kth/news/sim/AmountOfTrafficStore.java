@@ -9,5 +9,25 @@ import se.sics.ktoolbox.util.network.KAddress;
 public class AmountOfTrafficStore {
 
 	public HashMap<KAddress, Integer> Store = new HashMap<KAddress, Integer>();
+	// messages carrying news bodies, and news learned from the views of the overlay shuffles instead
+	public HashMap<KAddress, Integer> NewsMessages = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Integer> Piggybacked = new HashMap<KAddress, Integer>();
+	// bulk news messages : bytes before and after compression, time (ns) spent compressing and decompressing
+	public HashMap<KAddress, Long> RawBytes = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Long> CompressedBytes = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Long> CompressionNanos = new HashMap<KAddress, Long>();
+	// rate limiting : messages waiting for tokens now, the most that ever waited, and the ones dropped
+	public HashMap<KAddress, Integer> QueueDepth = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Integer> MaxQueueDepth = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Integer> Dropped = new HashMap<KAddress, Integer>();
+	// stale re-forwards that waited too long in the queue
+	public HashMap<KAddress, Integer> Expired = new HashMap<KAddress, Integer>();
+	// news bodies : chunk bytes pulled, chunks not pulled thanks to content addressing, bodies complete or
+	// still missing chunks, total time (ms) from header to complete body
+	public HashMap<KAddress, Long> BodyBytes = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Long> BodyDedup = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Integer> BodiesComplete = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Integer> BodiesPending = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Long> BodyMillis = new HashMap<KAddress, Long>();
 	
 }
@@ -0,0 +1,14 @@
+package se.kth.news.sim;
+
+import java.util.HashMap;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+public class DisseminationLatencyStore {
+
+	// sum of the delays (ms) between publication and reception of the news received by each node
+	public HashMap<KAddress, Long> TotalLatency = new HashMap<KAddress, Long>();
+	// number of news received by each node
+	public HashMap<KAddress, Integer> Deliveries = new HashMap<KAddress, Integer>();
+	
+}
@@ -1,14 +1,20 @@
 package se.kth.news.sim;
 
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.NewsWatermarks;
 import se.sics.ktoolbox.util.network.KAddress;
 
 public class GlobalNewsStore {
 
-	public HashMap<KAddress, LinkedHashSet<News>> Store = new HashMap<KAddress, LinkedHashSet<News>>();
-	
+	// what each node has received, by news id
+	public HashMap<KAddress, NewsWatermarks> Store = new HashMap<KAddress, NewsWatermarks>();
+	// every news published by the writers, by news id
+	public LinkedHashMap<Long, News> Published = new LinkedHashMap<Long, News>();
+	// topics of the nodes that subscribed to some, the others take every topic
+	public HashMap<KAddress, Set<Integer>> Subscriptions = new HashMap<KAddress, Set<Integer>>();
 	
 }
@@ -0,0 +1,16 @@
+package se.kth.news.sim;
+
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Positive;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.timer.Timer;
+
+/**
+ * A node that does nothing, started by the scenario in place of an event it
+ * had to skip, e.g. the kill of a leader nobody elected.
+ */
+public class IdleComp extends ComponentDefinition {
+
+    Positive<Timer> timer = requires(Timer.class);
+    Positive<Network> network = requires(Network.class);
+}
@@ -0,0 +1,14 @@
+package se.kth.news.sim;
+
+import java.util.HashMap;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+public class JoinStore {
+
+	// time at which each node started
+	public HashMap<KAddress, Long> JoinTime = new HashMap<KAddress, Long>();
+	// filled by the observer : delay (ms) until a node knew every news published before it started
+	public HashMap<KAddress, Long> TimeToFullKnowledge = new HashMap<KAddress, Long>();
+	
+}
@@ -0,0 +1,36 @@
+package se.kth.news.sim;
+
+import java.util.HashMap;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+public class LeaderStore {
+
+	// leader followed by each node, nodes without a leader are absent
+	public HashMap<KAddress, KAddress> Leader = new HashMap<KAddress, KAddress>();
+	// gradient round of the last change of leader of each node
+	public HashMap<KAddress, Integer> Round = new HashMap<KAddress, Integer>();
+	// number of times each node changed leader, flapping shows here
+	public HashMap<KAddress, Integer> Changes = new HashMap<KAddress, Integer>();
+	// election messages sent by each node
+	public HashMap<KAddress, Integer> Messages = new HashMap<KAddress, Integer>();
+	// time (ms) each leader got elected
+	public HashMap<KAddress, Long> ElectedTime = new HashMap<KAddress, Long>();
+	// time (ms) of the last change of leader of each node
+	public HashMap<KAddress, Long> AdoptTime = new HashMap<KAddress, Long>();
+	// time (ms) each node spent as leader over its past terms, the current one excluded
+	public HashMap<KAddress, Long> LeaderMillis = new HashMap<KAddress, Long>();
+	// leaders killed by the scenario, and when
+	public HashMap<KAddress, Long> Killed = new HashMap<KAddress, Long>();
+	// leader kills the scenario skipped because no node followed a leader
+	public int KillsSkipped = 0;
+	// batched ordering: news numbered by each leader, in how many batches, how many of
+	// these were acked by a majority of replicas and the sum of the times (ms) it took
+	public HashMap<KAddress, Long> Sequenced = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Integer> OrderBatches = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Integer> OrderCommitted = new HashMap<KAddress, Integer>();
+	public HashMap<KAddress, Long> OrderCommitMillis = new HashMap<KAddress, Long>();
+	// submissions waiting for a batch at each leader, a backlog that stays means it is saturated
+	public HashMap<KAddress, Integer> OrderPending = new HashMap<KAddress, Integer>();
+	
+}
@@ -0,0 +1,19 @@
+package se.kth.news.sim;
+
+import java.util.HashMap;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+public class PersistenceStore {
+
+	// time (ns) spent in the news handler and number of news it handled, to check the log does not slow it down
+	public HashMap<KAddress, Long> HandlerNanos = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Integer> HandledNews = new HashMap<KAddress, Integer>();
+	// news acknowledged as durable, sum of their append to durable delays (ns), and the fsyncs it took
+	public HashMap<KAddress, Long> DurableNews = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Long> DurableNanos = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Integer> Fsyncs = new HashMap<KAddress, Integer>();
+	// news whose commit failed, never durable
+	public HashMap<KAddress, Long> LostNews = new HashMap<KAddress, Long>();
+	
+}
@@ -22,10 +22,16 @@ import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.news.core.news.util.ZipfSampler;
 
 import se.kth.news.sim.compatibility.SimNodeIdExtractor;
 import se.kth.news.system.HostMngrComp;
 import se.sics.kompics.Init;
+import se.sics.kompics.KompicsEvent;
 import se.sics.kompics.network.Address;
 import se.sics.kompics.simulator.SimulationScenario;
 import se.sics.kompics.simulator.adaptor.Operation;
@@ -35,6 +41,7 @@ import se.sics.kompics.simulator.adaptor.Operation3;
 import se.sics.kompics.simulator.adaptor.distributions.ConstantDistribution;
 import se.sics.kompics.simulator.adaptor.distributions.IntegerUniformDistribution;
 import se.sics.kompics.simulator.adaptor.distributions.extra.BasicIntSequentialDistribution;
+import se.sics.kompics.simulator.events.system.KillNodeEvent;
 import se.sics.kompics.simulator.events.system.SetupEvent;
 import se.sics.kompics.simulator.events.system.StartNodeEvent;
 import se.sics.kompics.simulator.network.identifier.IdentifierExtractor;
@@ -49,6 +56,11 @@ import static java.lang.Math.toIntExact;
  */
 public class ScenarioGen {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(ScenarioGen.class);
+	
+	// operations have no config, the stores are reached through the view handed to the setup
+	private static GlobalView globalView;
+	
 	 static Operation setupOp = new Operation<SetupEvent>() {
 	        public SetupEvent generate() {
 	            return new SetupEvent() {
@@ -56,6 +68,12 @@ public class ScenarioGen {
 	                public void setupGlobalView(GlobalView gv) {
 	                		gv.setValue("simulation.newsstore", new GlobalNewsStore());
 	                		gv.setValue("simulation.amountOfTraffic", new AmountOfTrafficStore());
+	                		gv.setValue("simulation.latency", new DisseminationLatencyStore());
+	                		gv.setValue("simulation.persistence", new PersistenceStore());
+	                		gv.setValue("simulation.join", new JoinStore());
+	                		gv.setValue("simulation.view", new ViewStore());
+	                		gv.setValue("simulation.leader", new LeaderStore());
+	                		globalView = gv;
 
 	                }
 	            };
@@ -148,45 +166,176 @@ public class ScenarioGen {
 
         @Override
         public StartNodeEvent generate(final Integer nodeId, final Integer timer, final Long writer) {
-            return new StartNodeEvent() {
-                KAddress selfAdr;
+            return startNode(nodeId, timer, writer, false);
+        }
+    };
+    
+    static Operation3<StartNodeEvent, Integer, Integer, Long> startLateJoinerOp = new Operation3<StartNodeEvent, Integer, Integer, Long>() {
 
-                {
-                    selfAdr = ScenarioSetup.getNodeAdr(nodeId);
-                }
+        @Override
+        public StartNodeEvent generate(final Integer nodeId, final Integer timer, final Long writer) {
+            return startNode(nodeId, timer, writer, true);
+        }
+    };
+    
+    private static StartNodeEvent startNode(final Integer nodeId, final Integer timer, final Long writer, final boolean lateJoiner) {
+        return new StartNodeEvent() {
+            KAddress selfAdr;
 
-                @Override
-                public Address getNodeAddress() {
-                    return selfAdr;
-                }
+            {
+                selfAdr = ScenarioSetup.getNodeAdr(nodeId);
+            }
 
-                @Override
-                public Class getComponentDefinition() {
-                    return HostMngrComp.class;
+            @Override
+            public Address getNodeAddress() {
+                return selfAdr;
+            }
+
+            @Override
+            public Class getComponentDefinition() {
+                return HostMngrComp.class;
+            }
+
+            @Override
+            public HostMngrComp.Init getComponentInit() {
+                return new HostMngrComp.Init(selfAdr, ScenarioSetup.bootstrapServer, ScenarioSetup.newsOverlayId);
+            }
+
+            @Override
+            public Map<String, Object> initConfigUpdate() {
+                Map<String, Object> nodeConfig = new HashMap<>();
+                nodeConfig.put("system.id", nodeId);
+                nodeConfig.put("system.seed", ScenarioSetup.getNodeSeed(nodeId));
+                nodeConfig.put("system.port", ScenarioSetup.appPort);
+                nodeConfig.put("newsTimeOut", timer);
+                // writer is 1 if the node is a writer, 0 otherwise
+                nodeConfig.put("writer", writer);
+                // rumour mongering parameters
+                nodeConfig.put("news.fanout", ScenarioSetup.newsFanout);
+                nodeConfig.put("news.stopProbability", ScenarioSetup.newsStopProbability);
+                // persistence, compare handler latency and durable throughput across batch windows
+                nodeConfig.put("news.persistence", ScenarioSetup.newsPersistence);
+                nodeConfig.put("news.persistenceBatchWindow", ScenarioSetup.newsPersistenceBatchWindow);
+                // outbound rate limits (messages/s), lower them to find the saturation point of a node
+                nodeConfig.put("news.nodeRate", ScenarioSetup.newsNodeRate);
+                nodeConfig.put("news.neighbourRate", ScenarioSetup.newsNeighbourRate);
+                nodeConfig.put("news.piggybackSize", ScenarioSetup.newsPiggybackSize);
+                nodeConfig.put("news.piggybackNews", ScenarioSetup.newsPiggybackNews);
+                nodeConfig.put("news.bodySize", ScenarioSetup.newsBodySize);
+                nodeConfig.put("news.topics", ScenarioSetup.newsTopics);
+                nodeConfig.put("news.topicSkew", ScenarioSetup.newsTopicSkew);
+                nodeConfig.put("news.subscriptions", subscriptions(nodeId));
+                nodeConfig.put("news.leaderSequencing", ScenarioSetup.newsLeaderSequencing);
+                nodeConfig.put("news.orderBatchWindow", ScenarioSetup.newsOrderBatchWindow);
+                nodeConfig.put("news.publishBurst", ScenarioSetup.newsPublishBurst);
+                nodeConfig.put("leader.shards", ScenarioSetup.newsShards);
+                // only the nodes joining once news are flowing pull a snapshot
+                nodeConfig.put("news.snapshotJoin", lateJoiner);
+                return nodeConfig;
+            }
+        };
+    }
+    
+    // kills the leader followed by most nodes, its followers must elect another one. Without a leader
+    // nothing is killed: an operation has to yield an event, so an idle node is started instead
+    static Operation<KompicsEvent> killLeaderOp = new Operation<KompicsEvent>() {
+
+        @Override
+        public KompicsEvent generate() {
+            LeaderStore leaderStore = globalView.getValue("simulation.leader", LeaderStore.class);
+            Map<KAddress, Integer> followers = new HashMap<>();
+            KAddress leader = null;
+            for (KAddress nodeLeader : leaderStore.Leader.values()) {
+                Integer count = followers.get(nodeLeader);
+                followers.put(nodeLeader, count == null ? 1 : count + 1);
+                if (leader == null || followers.get(nodeLeader) > followers.get(leader)) {
+                    leader = nodeLeader;
                 }
+            }
+            if (leader == null) {
+                LOG.warn("no node follows a leader, skipping the leader kill");
+                leaderStore.KillsSkipped++;
+                return idleNode();
+            }
+            long now = System.currentTimeMillis();
+            Long elected = leaderStore.ElectedTime.get(leader);
+            if (elected != null && leader.equals(leaderStore.Leader.get(leader))) {
+                // its term ends with it
+                Long led = leaderStore.LeaderMillis.get(leader);
+                leaderStore.LeaderMillis.put(leader, (led == null ? 0 : led) + now - elected);
+            }
+            leaderStore.Killed.put(leader, now);
+            leaderStore.Leader.remove(leader);
+            final KAddress selfAdr = leader;
+            return new KillNodeEvent() {
 
                 @Override
-                public HostMngrComp.Init getComponentInit() {
-                    return new HostMngrComp.Init(selfAdr, ScenarioSetup.bootstrapServer, ScenarioSetup.newsOverlayId);
+                public Address getNodeAddress() {
+                    return selfAdr;
                 }
 
                 @Override
-                public Map<String, Object> initConfigUpdate() {
-                    Map<String, Object> nodeConfig = new HashMap<>();
-                    nodeConfig.put("system.id", nodeId);
-                    nodeConfig.put("system.seed", ScenarioSetup.getNodeSeed(nodeId));
-                    nodeConfig.put("system.port", ScenarioSetup.appPort);
-                    nodeConfig.put("newsTimeOut", timer);
-                    // writer is 1 if the node is a writer, 0 otherwise
-                    nodeConfig.put("writer", writer);
-                    return nodeConfig;
+                public String toString() {
+                    return "KillLeader<" + selfAdr + ">";
                 }
             };
         }
     };
+
+    private static StartNodeEvent idleNode() {
+        return new StartNodeEvent() {
+            KAddress selfAdr = ScenarioSetup.getNodeAdr(ScenarioSetup.idleNodeId);
+
+            @Override
+            public Address getNodeAddress() {
+                return selfAdr;
+            }
+
+            @Override
+            public Class getComponentDefinition() {
+                return IdleComp.class;
+            }
+
+            @Override
+            public Init getComponentInit() {
+                return Init.NONE;
+            }
+
+            @Override
+            public String toString() {
+                return "SkippedKillLeader<" + selfAdr + ">";
+            }
+        };
+    }
+    
+    // popular topics get more subscribers, as they get more news
+    private static String subscriptions(int nodeId) {
+    	if (ScenarioSetup.newsTopics == 0) {
+    		return "";
+    	}
+    	Random rnd = new Random(ScenarioSetup.getNodeSeed(nodeId));
+    	ZipfSampler popularity = new ZipfSampler(ScenarioSetup.newsTopics, ScenarioSetup.newsTopicSkew);
+    	Set<Integer> topics = new TreeSet<>();
+    	int n = Math.min(ScenarioSetup.newsSubscriptionsPerNode, ScenarioSetup.newsTopics);
+    	while (topics.size() < n) {
+    		topics.add(popularity.next(rnd));
+    	}
+    	StringBuilder sb = new StringBuilder();
+    	for (int topic : topics) {
+    		sb.append(sb.length() == 0 ? "" : ",").append(topic);
+    	}
+    	return sb.toString();
+    }
     
     public static SimulationScenario simpleBoot() {
+    	return simpleBoot(ScenarioSetup.nbNodes, false, false);
+    }
+    
+    // nbNodes / 4 writers, the others readers; lateJoiners adds 4 nodes that join once news are flowing and pull
+    // a snapshot, killLeader then kills the leader to measure the failover
+    public static SimulationScenario simpleBoot(final int nbNodes, final boolean killLeader, final boolean lateJoiners) {
     	final Random rnd = new Random();
+    	final int nbWriters = nbNodes / 4;
         SimulationScenario scen = new SimulationScenario() {
             {
                 StochasticProcess setup = new SimulationScenario.StochasticProcess() {
@@ -218,14 +367,27 @@ public class ScenarioGen {
                     {
                     	
                         eventInterArrivalTime(uniform(1, 50));
-                        raise(188, startNodeOp, new BasicIntSequentialDistribution(63), new IntegerUniformDistribution(1000,5000,rnd), constant(0));
+                        raise(nbNodes - nbWriters, startNodeOp, new BasicIntSequentialDistribution(nbWriters + 1), new IntegerUniformDistribution(1000,5000,rnd), constant(0));
                     }
                 };
                 StochasticProcess startWriterPeers = new StochasticProcess() {
                     {
                     	
                         eventInterArrivalTime(uniform(1, 50));
-                        raise(62, startNodeOp, new BasicIntSequentialDistribution(1), new IntegerUniformDistribution(1000,5000,rnd), constant(1));
+                        raise(nbWriters, startNodeOp, new BasicIntSequentialDistribution(1), new IntegerUniformDistribution(1000,5000,rnd), constant(1));
+                    }
+                };
+                // joined once news are flowing, they must pull what was published before
+                StochasticProcess startLateJoiners = new StochasticProcess() {
+                    {
+                        eventInterArrivalTime(uniform(1000, 2000));
+                        raise(4, startLateJoinerOp, new BasicIntSequentialDistribution(nbNodes + 1), new IntegerUniformDistribution(1000,5000,rnd), constant(0));
+                    }
+                };
+                StochasticProcess killLeaderProcess = new StochasticProcess() {
+                    {
+                        eventInterArrivalTime(constant(1000));
+                        raise(1, killLeaderOp);
                     }
                 };
                 setup.start();
@@ -235,7 +397,26 @@ public class ScenarioGen {
                 startNonWriterPeers.startAfterTerminationOf(100, startBootstrapServer);
                 startWriterPeers.startAfterTerminationOf(1000, startNonWriterPeers);
                 startObserver.startAfterTerminationOf(1, startWriterPeers);
-                terminateAfterTerminationOf(45000, setup);
+                if (lateJoiners) {
+                	startLateJoiners.startAfterTerminationOf(20000, startWriterPeers);
+                }
+                // relative to the last start, large scenarios take longer to boot
+                if (killLeader) {
+                	if (lateJoiners) {
+                		killLeaderProcess.startAfterTerminationOf(5000, startLateJoiners);
+                	} else {
+                		killLeaderProcess.startAfterTerminationOf(25000, startWriterPeers);
+                	}
+                	terminateAfterTerminationOf(15000, killLeaderProcess);
+                } else if (lateJoiners) {
+                	terminateAfterTerminationOf(15000, startLateJoiners);
+                } else if (nbNodes == ScenarioSetup.nbNodes) {
+                	// the baseline every other measurement compares against
+                	terminateAfterTerminationOf(45000, setup);
+                } else {
+                	// about as long after the last start as the baseline
+                	terminateAfterTerminationOf(35000, startObserver);
+                }
             }
         };
 
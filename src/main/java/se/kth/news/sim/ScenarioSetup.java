@@ -33,7 +33,33 @@ public class ScenarioSetup {
 
     public static final long scenarioSeed = 1234;
     public static final int appPort = 12345;
+    // default scenario size, a quarter of the nodes are writers
+    public static final int nbNodes = 250;
+    public static final int newsFanout = 3;
+    public static final double newsStopProbability = 0.25;
+    public static final boolean newsPersistence = false;
+    public static final long newsPersistenceBatchWindow = 5;
+    public static final double newsNodeRate = 0.0;
+    public static final double newsNeighbourRate = 0.0;
+    public static final int newsPiggybackSize = 0;
+    public static final boolean newsPiggybackNews = false;
+    public static final int newsBodySize = 0;
+    // topics benchmark : writers publish on newsTopics topics and each node subscribes to
+    // newsSubscriptionsPerNode of them, both drawn from a zipf law of exponent newsTopicSkew
+    public static final int newsTopics = 0;
+    public static final double newsTopicSkew = 1.0;
+    public static final int newsSubscriptionsPerNode = 2;
+    // ordering benchmark : writers submit to the leader, which numbers them in batches gathered
+    // for newsOrderBatchWindow ms (0 numbers each on arrival); compare the ordering throughput across windows
+    public static final boolean newsLeaderSequencing = false;
+    public static final long newsOrderBatchWindow = 0;
+    // each writer tick publishes newsPublishBurst news, raise it until the leader keeps submissions pending
+    public static final int newsPublishBurst = 1;
+    // writers split in newsShards shards by id, each with its own leader; compare the aggregate ordering throughput across shard counts
+    public static final int newsShards = 1;
     public static final KAddress bootstrapServer;
+    // address of the idle node started in place of a skipped event, above any node id
+    public static final int idleNodeId = 0xFFFFFE;
     
     public static byte overlayOwner = 0x10;
     public static final Identifier newsOverlayId;
@@ -47,9 +73,11 @@ public class ScenarioSetup {
         newsOverlayId = OverlayIdFactory.getId(overlayOwner, OverlayIdFactory.Type.TGRADIENT, new byte[]{0, 0, 1});
     }
 
+    // ids above 255 spill over to the upper bytes of the address
     public static KAddress getNodeAdr(int nodeId) {
         try {
-            return NatAwareAddressImpl.open(new BasicAddress(InetAddress.getByName("193.0.0." + nodeId), appPort, new IntIdentifier(nodeId)));
+            String ip = "193." + ((nodeId >>> 16) & 0xFF) + "." + ((nodeId >>> 8) & 0xFF) + "." + (nodeId & 0xFF);
+            return NatAwareAddressImpl.open(new BasicAddress(InetAddress.getByName(ip), appPort, new IntIdentifier(nodeId)));
         } catch (UnknownHostException ex) {
             throw new RuntimeException(ex);
         }
@@ -17,6 +17,10 @@
  */
 package se.kth.news.sim;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import se.kth.news.core.news.serializer.NewsSerializerSetup;
 import se.sics.kompics.simulator.SimulationScenario;
 import se.sics.kompics.simulator.run.LauncherComp;
 
@@ -24,9 +28,19 @@ import se.sics.kompics.simulator.run.LauncherComp;
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class SimLauncher {
+    private static final int serializerStartingId = 200;
+
     public static void main(String[] args) {
+        NewsSerializerSetup.registerSerializers(serializerStartingId);
         SimulationScenario.setSeed(ScenarioSetup.scenarioSeed);
-        SimulationScenario simpleBootScenario = ScenarioGen.simpleBoot();
+        // optional number of nodes, e.g. 100, 1000 or 10000 to measure the leader election at scale
+        int nbNodes = args.length > 0 ? Integer.parseInt(args[0]) : ScenarioSetup.nbNodes;
+        // then "kill" kills the leader once elected, to measure the failover time, and "late" starts 4 nodes
+        // once news are flowing, to measure the snapshot join; the baseline scenario has neither
+        List<String> options = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : Collections.<String>emptyList();
+        boolean killLeader = options.contains("kill");
+        boolean lateJoiners = options.contains("late");
+        SimulationScenario simpleBootScenario = ScenarioGen.simpleBoot(nbNodes, killLeader, lateJoiners);
         simpleBootScenario.simulate(LauncherComp.class);
     }
 }
@@ -2,8 +2,10 @@ package se.kth.news.sim;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -11,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.NewsWatermarks;
 import se.sics.kompics.ComponentDefinition;
 import se.sics.kompics.Handler;
 import se.sics.kompics.Positive;
@@ -29,6 +32,10 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
     Positive<Timer> timer = requires(Timer.class);
     Positive<Network> network = requires(Network.class);
     private UUID timerId;
+    // durable news count at the previous check
+    private long lastDurableNews = 0;
+    // view update count at the previous check
+    private long lastViewUpdates = 0;
 
     public SimulationObserverTask1() {
 
@@ -55,13 +62,24 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
         	GlobalView gv = config().getValue("simulation.globalview", GlobalView.class);
         	GlobalNewsStore newsStore = gv.getValue("simulation.newsstore", GlobalNewsStore.class);
         	AmountOfTrafficStore trafficStore = gv.getValue("simulation.amountOfTraffic", AmountOfTrafficStore.class);
+        	DisseminationLatencyStore latencyStore = gv.getValue("simulation.latency", DisseminationLatencyStore.class);
+        	PersistenceStore persistenceStore = gv.getValue("simulation.persistence", PersistenceStore.class);
+        	JoinStore joinStore = gv.getValue("simulation.join", JoinStore.class);
+        	ViewStore viewStore = gv.getValue("simulation.view", ViewStore.class);
+        	LeaderStore leaderStore = gv.getValue("simulation.leader", LeaderStore.class);
         	
-        	LinkedHashSet<News> globalNewsList = buildGlobalNewsList(newsStore);
+        	Collection<News> globalNewsList = newsStore.Published.values();
         	//LOG.info(" Global News list : {}.\n", globalNewsList);
         	
         	newsCoverage(newsStore, globalNewsList);
         	nodeKnowledge(newsStore, globalNewsList);
+        	topicDelivery(newsStore, globalNewsList);
         	amountOfTraffic(trafficStore);
+        	disseminationLatency(latencyStore);
+        	persistence(persistenceStore);
+        	timeToFullKnowledge(newsStore, joinStore, globalNewsList);
+        	viewUpdates(viewStore);
+        	leaderElection(leaderStore, newsStore.Store.size());
         	
         }
     };
@@ -82,21 +100,8 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
         }
     }
     
-    // Returns a Set of all the published news using the globalNewsStore
-    public LinkedHashSet<News> buildGlobalNewsList(GlobalNewsStore newsStore){
-    	Set<KAddress> nodeAddrs = newsStore.Store.keySet();
-    	Iterator<KAddress> addrIt = nodeAddrs.iterator();
-    	LinkedHashSet<News> globalNewsList = new LinkedHashSet<News>();
-    	while(addrIt.hasNext()){
-    		KAddress addr = addrIt.next();
-    		LinkedHashSet<News> newsSet = newsStore.Store.get(addr);
-    		globalNewsList.addAll(newsSet);
-    	}
-    	return globalNewsList;
-    }
-    
     // what percentage of nodes received each of the news items
-    public void newsCoverage(GlobalNewsStore newsStore, LinkedHashSet<News> globalNewsList){
+    public void newsCoverage(GlobalNewsStore newsStore, Collection<News> globalNewsList){
     	// Iterate on each new
     	Iterator<News> newsIt = globalNewsList.iterator();
     	
@@ -118,10 +123,10 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
         	//LOG.info(" News Coverage: current news: '{}' ", currentNew);
         	while(addrIt.hasNext()){
         		KAddress addr = addrIt.next();
-        		LinkedHashSet<News> newsSet = newsStore.Store.get(addr);
+        		NewsWatermarks newsSet = newsStore.Store.get(addr);
         		//LOG.info(" News Coverage: The node '{}' has the list {}.", addr.toString(), newsSet);
-        		//LOG.info(" News Coverage : {}", newsSet.contains(currentNew));
-        		if(newsSet.contains(currentNew)){
+        		//LOG.info(" News Coverage : {}", newsSet.contains(currentNew.getId()));
+        		if(newsSet.contains(currentNew.getId())){
         			nbNodes++;
         		}
         		//LOG.info(" News Coverage : {}", nbNodes);
@@ -139,7 +144,7 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
     }
     
     // for each node what percentage of news items did it see
-    public void nodeKnowledge(GlobalNewsStore newsStore, LinkedHashSet<News> globalNewsList){
+    public void nodeKnowledge(GlobalNewsStore newsStore, Collection<News> globalNewsList){
     	double totalNbNews = (double) globalNewsList.size();
     	
     	if(totalNbNews > 0){
@@ -153,10 +158,10 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
     		while(addrIt.hasNext()){
     			KAddress addr = addrIt.next();
     		
-    			LinkedHashSet<News> newsSet = newsStore.Store.get(addr);
+    			NewsWatermarks newsSet = newsStore.Store.get(addr);
     			//LOG.info(" Node Knowledge: The node '{}' has the list {} .\n", addr.toString(), newsSet);
     			// Number of news the node has
-    			double nbNews = (double) newsSet.size();
+    			double nbNews = (double) newsSet.count();
     			//LOG.info("list size : {}", nbNews);
     			avg =  avg + (nbNews*100/totalNbNews); 
     			//LOG.info("avg : {}", avg);
@@ -169,6 +174,122 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
     }
     
     
+    // with topics : coverage among the subscribers of each news, and what reached the other nodes anyway
+    public void topicDelivery(GlobalNewsStore newsStore, Collection<News> globalNewsList){
+    	if(newsStore.Subscriptions.isEmpty() || globalNewsList.isEmpty()) return;
+    	long subscribers = 0;
+    	long delivered = 0;
+    	long others = 0;
+    	long relayed = 0;
+    	for(News news : globalNewsList){
+    		for(Map.Entry<KAddress, NewsWatermarks> node : newsStore.Store.entrySet()){
+    			Set<Integer> topics = newsStore.Subscriptions.get(node.getKey());
+    			boolean received = node.getValue().contains(news.getId());
+    			if(topics == null || topics.contains(news.getTopic())){
+    				subscribers++;
+    				delivered += received ? 1 : 0;
+    			} else {
+    				others++;
+    				relayed += received ? 1 : 0;
+    			}
+    		}
+    	}
+    	LOG.info(" Topics: subscribers received {} % of the news of their topics.", subscribers == 0 ? 0 : delivered*100.0/subscribers);
+    	LOG.info(" Topics: {} % of the news went to nodes not subscribed to them (relayed, not kept), 100 % without filtering. \n",
+    			others == 0 ? 0 : relayed*100.0/others);
+    }
+    
+    // how many nodes follow the same leader, how long it took them and what it cost
+    public void leaderElection(LeaderStore leaderStore, int nbNodes){
+    	Map<KAddress, Integer> followers = new HashMap<KAddress, Integer>();
+    	KAddress leader = null;
+    	for(KAddress nodeLeader : leaderStore.Leader.values()){
+    		Integer count = followers.get(nodeLeader);
+    		followers.put(nodeLeader, count == null ? 1 : count + 1);
+    		if(leader == null || followers.get(nodeLeader) > followers.get(leader)){
+    			leader = nodeLeader;
+    		}
+    	}
+    	int rounds = 0;
+    	for(Map.Entry<KAddress, KAddress> node : leaderStore.Leader.entrySet()){
+    		if(node.getValue().equals(leader)){
+    			rounds = Math.max(rounds, leaderStore.Round.get(node.getKey()));
+    		}
+    	}
+    	int changes = 0;
+    	for(Integer nodeChanges : leaderStore.Changes.values()){
+    		changes += nodeChanges;
+    	}
+    	int messages = 0;
+    	for(Integer nodeMessages : leaderStore.Messages.values()){
+    		messages += nodeMessages;
+    	}
+    	if(leader != null){
+    		LOG.info(" Leader: {} of {} nodes follow {}, {} leaders known in total.", followers.get(leader), nbNodes, leader, followers.size());
+    		LOG.info(" Leader: the last of them adopted it in gradient round {}; {} leader changes overall.", rounds, changes);
+    	}
+    	LOG.info(" Leader: {} election messages, {} per node. \n", messages, nbNodes == 0 ? 0 : (double) messages/nbNodes);
+    	// with shards, every leader numbers the news of its own shard
+    	double orderRate = 0;
+    	if(!leaderStore.Sequenced.isEmpty()){
+    		LOG.info(" Ordering: window {} ms, {} news per writer tick.", ScenarioSetup.newsOrderBatchWindow, ScenarioSetup.newsPublishBurst);
+    	}
+    	for(Map.Entry<KAddress, Long> sequenced : leaderStore.Sequenced.entrySet()){
+    		orderRate += ordering(leaderStore, sequenced.getKey(), sequenced.getValue());
+    	}
+    	if(ScenarioSetup.newsShards > 1){
+    		LOG.info(" Ordering: {} shards, {} leaders number {} news per second together.\n", ScenarioSetup.newsShards,
+    				leaderStore.Sequenced.size(), orderRate);
+    	}
+    	if(leaderStore.KillsSkipped > 0){
+    		LOG.info(" Failover: no leader to kill, no failover measured.\n");
+    	}
+    	for(Map.Entry<KAddress, Long> killed : leaderStore.Killed.entrySet()){
+    		failover(leaderStore, killed.getKey(), killed.getValue(), leader, leader == null ? 0 : followers.get(leader), nbNodes);
+    	}
+    }
+    
+    // submissions numbered per second of leadership, against the batch window and the load of the scenario; an ex-leader
+    // only counts the time of its terms, not what followed them
+    public double ordering(LeaderStore leaderStore, KAddress leader, long sequenced){
+    	int batches = leaderStore.OrderBatches.get(leader);
+    	int committed = leaderStore.OrderCommitted.get(leader);
+    	Integer pending = leaderStore.OrderPending.get(leader);
+    	Long led = leaderStore.LeaderMillis.get(leader);
+    	long millis = led == null ? 0 : led;
+    	Long elected = leaderStore.ElectedTime.get(leader);
+    	if(elected != null && leader.equals(leaderStore.Leader.get(leader))){
+    		millis += System.currentTimeMillis() - elected;
+    	}
+    	double seconds = millis / 1000.0;
+    	double rate = seconds > 0 ? sequenced / seconds : 0;
+    	LOG.info(" Ordering: {} numbered {} news in {} batches, {} news per second, {} still pending.", leader, sequenced, batches, rate,
+    			pending == null ? 0 : pending);
+    	if(committed > 0){
+    		LOG.info(" Ordering: {} batches acked by a majority of replicas, after {} ms on average.\n", committed,
+    				(double) leaderStore.OrderCommitMillis.get(leader) / committed);
+    	}
+    	return rate;
+    }
+    
+    // time from the kill of a leader to the election of the next one, and to the last of its followers adopting it
+    public void failover(LeaderStore leaderStore, KAddress killed, long killTime, KAddress leader, int nbFollowers, int nbNodes){
+    	Long elected = leader == null ? null : leaderStore.ElectedTime.get(leader);
+    	if(leader == null || leader.equals(killed) || elected == null || elected < killTime){
+    		LOG.info(" Failover: no new leader since {} was killed.\n", killed);
+    		return;
+    	}
+    	long adopted = elected;
+    	for(Map.Entry<KAddress, KAddress> node : leaderStore.Leader.entrySet()){
+    		Long adoptTime = leaderStore.AdoptTime.get(node.getKey());
+    		if(node.getValue().equals(leader) && adoptTime != null){
+    			adopted = Math.max(adopted, adoptTime);
+    		}
+    	}
+    	LOG.info(" Failover: {} elected {} ms after {} was killed.", leader, elected - killTime, killed);
+    	LOG.info(" Failover: {} of {} nodes follow it, the last of them {} ms after the kill.\n", nbFollowers, nbNodes, adopted - killTime);
+    }
+    
     // computes the global amount of traffic generated (sent msgs)
     public void amountOfTraffic(AmountOfTrafficStore trafficStore){
     	Integer globalTraffic = 0;
@@ -184,5 +305,161 @@ private static final Logger LOG = LoggerFactory.getLogger(SimulationObserverTask
 		double globalTrafficDouble = (double) globalTraffic;
 		LOG.info(" Global Traffic: Globally, nodes sent {} messages.", globalTrafficDouble);
 		LOG.info(" Global Traffic: That is an average of {} messages per node. \n", globalTrafficDouble/totalNbNodes);
+		int newsMessages = 0;
+		for(Integer nodeNewsMessages : trafficStore.NewsMessages.values()){
+			newsMessages += nodeNewsMessages;
+		}
+		int piggybacked = 0;
+		for(Integer nodePiggybacked : trafficStore.Piggybacked.values()){
+			piggybacked += nodePiggybacked;
+		}
+		LOG.info(" Global Traffic: {} of these messages carried news.", newsMessages);
+		if(piggybacked > 0){
+			LOG.info(" Global Traffic: {} news were learned from the overlay shuffles instead. \n", piggybacked);
+		}
+		long rawBytes = 0;
+		long compressedBytes = 0;
+		long compressionNanos = 0;
+		for(KAddress addr : trafficStore.RawBytes.keySet()){
+			rawBytes += trafficStore.RawBytes.get(addr);
+			compressedBytes += trafficStore.CompressedBytes.get(addr);
+			compressionNanos += trafficStore.CompressionNanos.get(addr);
+		}
+		int queueDepth = 0;
+		int maxQueueDepth = 0;
+		int dropped = 0;
+		int expired = 0;
+		for(KAddress addr : trafficStore.QueueDepth.keySet()){
+			queueDepth += trafficStore.QueueDepth.get(addr);
+			maxQueueDepth = Math.max(maxQueueDepth, trafficStore.MaxQueueDepth.get(addr));
+			dropped += trafficStore.Dropped.get(addr);
+			expired += trafficStore.Expired.get(addr);
+		}
+		if(!trafficStore.QueueDepth.isEmpty()){
+			LOG.info(" Global Traffic: {} messages waiting for tokens, at most {} on a single node, {} dropped.", queueDepth, maxQueueDepth, dropped);
+			LOG.info(" Global Traffic: {} stale re-forwards expired in the queues.", expired);
+		}
+		if(rawBytes > 0){
+			LOG.info(" Global Traffic: Compression brought {} bytes down to {} bytes (ratio {}).", rawBytes, compressedBytes, (double) rawBytes/compressedBytes);
+			LOG.info(" Global Traffic: Compressing and decompressing took {} ms of cpu. \n", compressionNanos/1000000.0);
+		}
+		long bodyBytes = 0;
+		long bodyDedup = 0;
+		int bodiesComplete = 0;
+		int bodiesPending = 0;
+		long bodyMillis = 0;
+		for(KAddress addr : trafficStore.BodyBytes.keySet()){
+			bodyBytes += trafficStore.BodyBytes.get(addr);
+			bodyDedup += trafficStore.BodyDedup.get(addr);
+			bodiesComplete += trafficStore.BodiesComplete.get(addr);
+			bodiesPending += trafficStore.BodiesPending.get(addr);
+			bodyMillis += trafficStore.BodyMillis.get(addr);
+		}
+		if(bodiesComplete + bodiesPending > 0){
+			LOG.info(" Global Traffic: {} news bodies pulled, {} still missing chunks, {} ms on average from header to body.",
+					bodiesComplete, bodiesPending, bodiesComplete == 0 ? 0 : (double) bodyMillis/bodiesComplete);
+			LOG.info(" Global Traffic: {} bytes of chunks pulled, {} chunks shared with another body were not pulled again. \n", bodyBytes, bodyDedup);
+		}
+    }
+    
+    // average delay between the publication of a news and its reception by a node
+    public void disseminationLatency(DisseminationLatencyStore latencyStore){
+    	long totalLatency = 0;
+    	long deliveries = 0;
+    	Iterator<KAddress> addrIt = latencyStore.Deliveries.keySet().iterator();
+    	while(addrIt.hasNext()){
+    		KAddress addr = addrIt.next();
+    		totalLatency += latencyStore.TotalLatency.get(addr);
+    		deliveries += latencyStore.Deliveries.get(addr);
+    	}
+    	if(deliveries > 0){
+    		LOG.info(" Latency: {} news deliveries.", deliveries);
+    		LOG.info(" Latency: On average, a news reached a node {} ms after its publication. \n", (double) totalLatency/deliveries);
+    	}
+    }
+    
+    // cost of the news log : time spent in the news handler, append to durable delay and durable throughput
+    public void persistence(PersistenceStore persistenceStore){
+    	long handlerNanos = 0;
+    	long handledNews = 0;
+    	long durableNews = 0;
+    	long durableNanos = 0;
+    	long fsyncs = 0;
+    	long lostNews = 0;
+    	for(KAddress addr : persistenceStore.DurableNews.keySet()){
+    		handlerNanos += persistenceStore.HandlerNanos.get(addr);
+    		handledNews += persistenceStore.HandledNews.get(addr);
+    		durableNews += persistenceStore.DurableNews.get(addr);
+    		durableNanos += persistenceStore.DurableNanos.get(addr);
+    		fsyncs += persistenceStore.Fsyncs.get(addr);
+    		Long lost = persistenceStore.LostNews.get(addr);
+    		lostNews += lost == null ? 0 : lost;
+    	}
+    	if(lostNews > 0){
+    		LOG.info(" Persistence: {} news lost by failed log commits, not counted as durable.", lostNews);
+    	}
+    	if(durableNews == 0) return;
+    	long period = config().getValue("simulation.checktimeout", Long.class);
+    	LOG.info(" Persistence: {} news handled in {} us on average.", handledNews, handledNews == 0 ? 0 : (double) handlerNanos/handledNews/1000);
+    	LOG.info(" Persistence: {} news durable, {} per fsync, {} ms from append to disk on average.", durableNews,
+    			(double) durableNews/fsyncs, (double) durableNanos/durableNews/1000000);
+    	LOG.info(" Persistence: {} news made durable per second since the last check. \n", (durableNews - lastDurableNews)*1000.0/period);
+    	lastDurableNews = durableNews;
+    }
+    
+    // for the nodes that joined after news were published : how long until they knew all of those
+    public void timeToFullKnowledge(GlobalNewsStore newsStore, JoinStore joinStore, Collection<News> globalNewsList){
+    	long now = System.currentTimeMillis();
+    	int joiners = 0;
+    	long totalTime = 0;
+    	for(KAddress addr : joinStore.JoinTime.keySet()){
+    		long joinTime = joinStore.JoinTime.get(addr);
+    		boolean late = false;
+    		boolean full = true;
+    		for(News news : globalNewsList){
+    			if(news.getTimestamp() >= joinTime) continue;
+    			late = true;
+    			NewsWatermarks watermarks = newsStore.Store.get(addr);
+    			if(watermarks == null || !watermarks.contains(news.getId())){
+    				full = false;
+    				break;
+    			}
+    		}
+    		if(!late) continue;
+    		joiners++;
+    		if(full && !joinStore.TimeToFullKnowledge.containsKey(addr)){
+    			joinStore.TimeToFullKnowledge.put(addr, now - joinTime);
+    		}
+    		if(joinStore.TimeToFullKnowledge.containsKey(addr)){
+    			totalTime += joinStore.TimeToFullKnowledge.get(addr);
+    		}
+    	}
+    	if(joiners == 0) return;
+    	int caughtUp = joinStore.TimeToFullKnowledge.size();
+    	LOG.info(" Join: {} of {} late joiners know every news published before they joined.", caughtUp, joiners);
+    	if(caughtUp > 0){
+    		LOG.info(" Join: On average it took them {} ms. \n", (double) totalTime/caughtUp);
+    	}
+    }
+    
+    // view churn sent to the overlay manager, and how far gradient neighbours' views lag behind their knowledge
+    public void viewUpdates(ViewStore viewStore){
+    	long viewUpdates = 0;
+    	for(int nodeUpdates : viewStore.ViewUpdates.values()){
+    		viewUpdates += nodeUpdates;
+    	}
+    	long staleness = 0;
+    	long neighbours = 0;
+    	for(KAddress addr : viewStore.Staleness.keySet()){
+    		staleness += viewStore.Staleness.get(addr);
+    		neighbours += viewStore.Neighbours.get(addr);
+    	}
+    	long period = config().getValue("simulation.checktimeout", Long.class);
+    	LOG.info(" Views: {} view updates sent to the overlays, {} per second since the last check.", viewUpdates,
+    			(viewUpdates - lastViewUpdates)*1000.0/period);
+    	if(neighbours > 0){
+    		LOG.info(" Views: a gradient neighbour advertises a count {} news away from what it knows on average. \n", (double) staleness/neighbours);
+    	}
+    	lastViewUpdates = viewUpdates;
     }
 }
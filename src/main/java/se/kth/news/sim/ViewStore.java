@@ -0,0 +1,15 @@
+package se.kth.news.sim;
+
+import java.util.HashMap;
+
+import se.sics.ktoolbox.util.network.KAddress;
+
+public class ViewStore {
+
+	// number of view updates each node sent to the overlays
+	public HashMap<KAddress, Integer> ViewUpdates = new HashMap<KAddress, Integer>();
+	// in the last gradient sample of each node : sum over its neighbours of |advertised count - actual count|, and the number of neighbours
+	public HashMap<KAddress, Long> Staleness = new HashMap<KAddress, Long>();
+	public HashMap<KAddress, Integer> Neighbours = new HashMap<KAddress, Integer>();
+	
+}
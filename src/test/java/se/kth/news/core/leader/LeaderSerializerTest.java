@@ -0,0 +1,80 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.leader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import se.kth.news.core.news.serializer.SerializerSupport;
+import se.kth.news.core.news.util.NewsView;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+import se.sics.ktoolbox.util.network.KAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static se.kth.news.core.news.serializer.SerializerSupport.roundTrip;
+
+public class LeaderSerializerTest {
+
+    @BeforeClass
+    public static void register() {
+        SerializerSupport.register();
+    }
+
+    @Test
+    public void proposal() {
+        LeaderProposal proposal = roundTrip(new LeaderProposal(7, new NewsView(new IntIdentifier(4), 90)));
+        assertEquals(7, proposal.term);
+        assertEquals(new IntIdentifier(4), proposal.view.nodeId);
+        assertEquals(90, proposal.view.localNewsCount);
+    }
+
+    @Test
+    public void vote() {
+        LeaderVote accept = roundTrip(new LeaderVote(7, true));
+        assertEquals(7, accept.term);
+        assertTrue(accept.accept);
+        assertFalse(roundTrip(new LeaderVote(8, false)).accept);
+    }
+
+    @Test
+    public void announce() {
+        KAddress leader = SerializerSupport.address(1);
+        KAddress successor = SerializerSupport.address(2);
+        LeaderAnnounce announce = roundTrip(new LeaderAnnounce(leader, 3, 12, successor));
+        assertEquals(leader, announce.leaderAdr);
+        assertEquals(3, announce.term);
+        assertEquals(12, announce.seq);
+        assertEquals(successor, announce.successor);
+        assertNull(roundTrip(new LeaderAnnounce(leader, 3, 13, null)).successor);
+    }
+
+    @Test
+    public void heartbeat() {
+        KAddress successor = SerializerSupport.address(2);
+        LeaderHeartbeat heartbeat = roundTrip(new LeaderHeartbeat(3, 40, successor));
+        assertEquals(3, heartbeat.term);
+        assertEquals(40, heartbeat.seq);
+        assertEquals(successor, heartbeat.successor);
+        assertNull(roundTrip(new LeaderHeartbeat(3, 41, null)).successor);
+        LeaderHeartbeatAck ack = roundTrip(new LeaderHeartbeatAck(3, 40));
+        assertEquals(3, ack.term);
+        assertEquals(40, ack.seq);
+    }
+}
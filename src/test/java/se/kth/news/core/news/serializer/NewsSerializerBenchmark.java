@@ -0,0 +1,140 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.NewsBatch;
+import se.kth.news.core.news.NewsDigest;
+import se.kth.news.core.news.util.ChunkId;
+import se.kth.news.core.news.util.NewsView;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.kth.news.play.Ping;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+
+/**
+ * ns per encode and decode of the most frequent messages through the Kompics
+ * registry, and their size in bytes. Not a unit test, run it with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=se.kth.news.core.news.serializer.NewsSerializerBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewsSerializerBenchmark {
+
+    @Param({"news", "newsWithBody", "batch", "view", "digest", "ping"})
+    public String message;
+
+    private Object msg;
+    private ByteBuf out;
+    private ByteBuf encoded;
+
+    @Setup
+    public void setup() {
+        SerializerSupport.register();
+        msg = sample(message);
+        out = Unpooled.buffer();
+        encoded = Unpooled.buffer();
+        Serializers.toBinary(msg, encoded);
+    }
+
+    @Benchmark
+    public ByteBuf encode() {
+        out.clear();
+        Serializers.toBinary(msg, out);
+        return out;
+    }
+
+    @Benchmark
+    public Object decode() {
+        encoded.readerIndex(0);
+        return Serializers.fromBinary(encoded, Optional.absent());
+    }
+
+    static Object sample(String message) {
+        switch (message) {
+            case "news":
+                return news(3, 1017);
+            case "newsWithBody":
+                return new News(News.newsId(5, 1), "news with a body", 1466000000000L, 5, News.logPosition(1, 20),
+                        Arrays.asList(ChunkId.of(new byte[]{1, 2}), ChunkId.of(new byte[]{3}), ChunkId.of(new byte[]{4})), 2);
+            case "batch":
+                List<News> news = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    news.add(news(i % 7, 1000 + i));
+                }
+                return new NewsBatch(news);
+            case "view":
+                return new NewsView(new IntIdentifier(13), 500, 7000L, new int[]{1, 2, 3, 4}, new int[]{250, 248, 240, 199});
+            case "digest":
+                NewsWatermarks watermarks = new NewsWatermarks();
+                for (int writer = 0; writer < 60; writer++) {
+                    for (int seq = 0; seq < 100; seq++) {
+                        watermarks.add(News.newsId(writer, seq));
+                    }
+                }
+                return new NewsDigest(watermarks);
+            case "ping":
+                return new Ping();
+            default:
+                throw new IllegalArgumentException("unknown message:" + message);
+        }
+    }
+
+    private static News news(int writer, int seq) {
+        return new News(News.newsId(writer, seq), "news " + writer + "/" + seq, 1466000000000L + seq, 5,
+                News.logPosition(1, seq), Collections.<ChunkId>emptyList(), seq % 3);
+    }
+
+    public static void main(String[] args) throws NoSuchFieldException, RunnerException {
+        SerializerSupport.register();
+        // bytes per message, JMH reports the times
+        for (String message : NewsSerializerBenchmark.class.getField("message").getAnnotation(Param.class).value()) {
+            System.out.println(message + ": " + SerializerSupport.size(sample(message)) + " bytes");
+        }
+        new Runner(new OptionsBuilder().include(NewsSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
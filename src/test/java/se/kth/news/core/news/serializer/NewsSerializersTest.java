@@ -0,0 +1,314 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import se.kth.news.core.news.CompressedNews;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.NewsBatch;
+import se.kth.news.core.news.NewsBodyChunk;
+import se.kth.news.core.news.NewsBodyRequest;
+import se.kth.news.core.news.NewsDelta;
+import se.kth.news.core.news.NewsDictionaryMiss;
+import se.kth.news.core.news.NewsDigest;
+import se.kth.news.core.news.NewsFeedback;
+import se.kth.news.core.news.NewsOrderAck;
+import se.kth.news.core.news.NewsOrderBatch;
+import se.kth.news.core.news.NewsRangeRequest;
+import se.kth.news.core.news.NewsRangeResponse;
+import se.kth.news.core.news.NewsSnapshotAck;
+import se.kth.news.core.news.NewsSnapshotChunk;
+import se.kth.news.core.news.NewsSnapshotRequest;
+import se.kth.news.core.news.NewsSubmit;
+import se.kth.news.core.news.NewsTreeJoin;
+import se.kth.news.core.news.util.ChunkId;
+import se.kth.news.core.news.util.InterestFilter;
+import se.kth.news.core.news.util.NewsView;
+import se.kth.news.core.news.util.NewsWatermarks;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static se.kth.news.core.news.serializer.SerializerSupport.fixedWidthSize;
+import static se.kth.news.core.news.serializer.SerializerSupport.roundTrip;
+import static se.kth.news.core.news.serializer.SerializerSupport.size;
+
+/**
+ * Round trip of every news serializer, and the size of the encoding against a
+ * fixed width layout of the same fields.
+ */
+public class NewsSerializersTest {
+
+    @BeforeClass
+    public static void register() {
+        SerializerSupport.register();
+    }
+
+    @Test
+    public void everySerializerIsRegisteredInOrder() {
+        NewsSerializerSetup.NewsSerializers[] entries = NewsSerializerSetup.NewsSerializers.values();
+        assertEquals(NewsSerializerSetup.serializerIds, entries.length);
+        for (NewsSerializerSetup.NewsSerializers entry : entries) {
+            assertEquals(entry.name(), SerializerSupport.NEWS_STARTING_ID + entry.ordinal(),
+                    Serializers.lookupSerializer(entry.serializedClass).identifier());
+        }
+    }
+
+    @Test
+    public void varIntRoundTrip() {
+        int[] ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1};
+        int[] intSizes = {1, 1, 1, 2, 2, 3, 5, 5};
+        for (int i = 0; i < ints.length; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            VarInt.writeInt(ints[i], buf);
+            assertEquals(intSizes[i], buf.readableBytes());
+            assertEquals(ints[i], VarInt.readInt(buf));
+        }
+        long[] longs = {0, 127, 128, System.currentTimeMillis(), Long.MAX_VALUE, -1};
+        int[] longSizes = {1, 1, 2, 6, 9, 10};
+        for (int i = 0; i < longs.length; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            VarInt.writeLong(longs[i], buf);
+            assertEquals(longSizes[i], buf.readableBytes());
+            assertEquals(longs[i], VarInt.readLong(buf));
+        }
+        ByteBuf buf = Unpooled.buffer();
+        VarInt.writeString("nyheter \u00e5\u00e4\u00f6", buf);
+        assertEquals("nyheter \u00e5\u00e4\u00f6", VarInt.readString(buf));
+    }
+
+    @Test
+    public void news() {
+        News unsequenced = news(3, 17, -1);
+        assertNews(unsequenced, roundTrip(unsequenced));
+        assertEquals(-1, roundTrip(unsequenced).getLogPosition());
+        News sequenced = news(3, 18, News.logPosition(2, 40));
+        assertNews(sequenced, roundTrip(sequenced));
+        News withBody = new News(News.newsId(5, 1), "with body", 1000L, 4, -1,
+                Arrays.asList(ChunkId.of(new byte[]{1, 2}), ChunkId.of(new byte[]{3})), 7);
+        assertNews(withBody, roundTrip(withBody));
+        for (News news : Arrays.asList(unsequenced, sequenced, withBody)) {
+            assertSmaller(fixedWidthSize(news), size(news));
+        }
+    }
+
+    @Test
+    public void newsLists() {
+        List<News> news = newsList(50);
+        NewsBatch batch = roundTrip(new NewsBatch(news));
+        assertNewsList(news, batch.news);
+        NewsRangeResponse range = roundTrip(new NewsRangeResponse(news));
+        assertNewsList(news, range.news);
+        NewsSnapshotChunk chunk = roundTrip(new NewsSnapshotChunk(4, news, true));
+        assertEquals(4, chunk.chunk);
+        assertTrue(chunk.last);
+        assertNewsList(news, chunk.news);
+        NewsOrderBatch order = roundTrip(new NewsOrderBatch(2, 100, news));
+        assertEquals(2, order.term);
+        assertEquals(100, order.firstLogSeq);
+        assertNewsList(news, order.news);
+        NewsSubmit submit = roundTrip(new NewsSubmit(news.get(0)));
+        assertNews(news.get(0), submit.news);
+        assertTrue(roundTrip(new NewsBatch(Collections.<News>emptyList())).news.isEmpty());
+
+        int fixedWidth = 4;
+        for (News n : news) {
+            fixedWidth += fixedWidthSize(n);
+        }
+        assertSmaller(fixedWidth, size(new NewsBatch(news)));
+    }
+
+    @Test
+    public void watermarks() {
+        NewsWatermarks watermarks = sampleWatermarks();
+        NewsDigest digest = roundTrip(new NewsDigest(watermarks));
+        assertEquals(watermarks.toString(), digest.watermarks.toString());
+        assertEquals(watermarks.count(), digest.watermarks.count());
+        for (int writer : watermarks.writers()) {
+            assertEquals(watermarks.position(writer), digest.watermarks.position(writer));
+        }
+        // a gap jumped over by the window stays unseen on the other side
+        assertEquals(false, digest.watermarks.contains(News.newsId(2, 10)));
+        assertTrue(digest.watermarks.contains(News.newsId(2, 300)));
+
+        NewsSnapshotRequest request = roundTrip(new NewsSnapshotRequest(watermarks, 8));
+        assertEquals(watermarks.toString(), request.watermarks.toString());
+        assertEquals(8, request.window);
+
+        List<News> news = newsList(5);
+        NewsDelta delta = roundTrip(new NewsDelta(news, watermarks));
+        assertNewsList(news, delta.news);
+        assertEquals(watermarks.toString(), delta.watermarks.toString());
+
+        // against listing every news id known
+        assertSmaller(4 + watermarks.count() * 8, size(new NewsDigest(watermarks)));
+    }
+
+    @Test
+    public void smallMessages() {
+        long[] ids = {News.newsId(1, 0), News.newsId(1, 1), News.newsId(900, 123456)};
+        assertArrayEquals(ids, roundTrip(new NewsFeedback(ids)).newsIds);
+        assertSmaller(4 + ids.length * 8, size(new NewsFeedback(ids)));
+        assertTrue(roundTrip(new NewsTreeJoin()) instanceof NewsTreeJoin);
+        assertEquals(12, roundTrip(new NewsSnapshotAck(12)).chunk);
+        NewsOrderAck ack = roundTrip(new NewsOrderAck(3, 64));
+        assertEquals(3, ack.term);
+        assertEquals(64, ack.firstLogSeq);
+        assertEquals(-559038737, roundTrip(new NewsDictionaryMiss(-559038737)).dictionaryId);
+    }
+
+    @Test
+    public void rangeRequest() {
+        List<Long> held = new ArrayList<>();
+        for (int seq = 10; seq < 60; seq += 2) {
+            held.add(News.logPosition(4, seq));
+        }
+        held.add(News.logPosition(5, 0));
+        NewsRangeRequest request = roundTrip(new NewsRangeRequest(1, News.logPosition(4, 7), held, 500));
+        assertEquals(1, request.shard);
+        assertEquals(News.logPosition(4, 7), request.contiguous);
+        assertEquals(held, request.held);
+        assertEquals(500, request.maxNews);
+        NewsRangeRequest fresh = roundTrip(new NewsRangeRequest(0, -1, Collections.<Long>emptyList(), 500));
+        assertEquals(-1, fresh.contiguous);
+        // held positions as gaps from the previous one, against 8 bytes each
+        assertSmaller(4 + 8 + 4 + 4 + held.size() * 8, size(request));
+    }
+
+    @Test
+    public void compressed() {
+        byte[] dictionary = "dictionary".getBytes();
+        byte[] payload = {9, 8, 7, 6};
+        CompressedNews inline = roundTrip(new CompressedNews(42, dictionary, 100, payload));
+        assertEquals(42, inline.dictionaryId);
+        assertArrayEquals(dictionary, inline.dictionary);
+        assertEquals(100, inline.rawLength);
+        assertArrayEquals(payload, inline.payload);
+        CompressedNews shared = roundTrip(new CompressedNews(42, null, 100, payload));
+        assertNull(shared.dictionary);
+        assertArrayEquals(payload, shared.payload);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compressedLengthBeyondTheMessage() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(42);
+        VarInt.writeInt(0, buf);
+        VarInt.writeInt(100, buf);
+        // announces a payload of a gigabyte, only 4 bytes follow
+        VarInt.writeInt(1 << 30, buf);
+        buf.writeInt(0);
+        new NewsMsgSerializer.Compressed(0).fromBinary(buf, Optional.<Object>absent());
+    }
+
+    @Test
+    public void bodies() {
+        List<ChunkId> chunks = Arrays.asList(ChunkId.of(new byte[]{1}), ChunkId.of(new byte[]{2}));
+        assertEquals(chunks, roundTrip(new NewsBodyRequest(chunks)).chunks);
+        NewsBodyChunk chunk = roundTrip(new NewsBodyChunk(chunks.get(0), new byte[]{1}));
+        assertEquals(chunks.get(0), chunk.id);
+        assertArrayEquals(new byte[]{1}, chunk.data);
+        // a chunk the holder does not have yet
+        assertNull(roundTrip(new NewsBodyChunk(chunks.get(1), null)).data);
+    }
+
+    @Test
+    public void view() {
+        NewsView plain = new NewsView(new IntIdentifier(12), 340);
+        NewsView plainCopy = roundTrip(plain);
+        assertEquals(plain.nodeId, plainCopy.nodeId);
+        assertEquals(340, plainCopy.localNewsCount);
+        assertEquals(-1, plainCopy.completeness);
+        assertEquals(InterestFilter.ALL, plainCopy.interest);
+
+        List<News> recent = newsList(3);
+        long[] recentIds = {recent.get(0).getId(), recent.get(1).getId()};
+        InterestFilter interest = InterestFilter.of(new HashSet<>(Arrays.asList(1, 4)), 128, 3);
+        NewsView full = new NewsView(new IntIdentifier(13), 500, 7000L, new int[]{1, 2}, new int[]{250, 248},
+                recentIds, recent, interest);
+        NewsView fullCopy = roundTrip(full);
+        assertEquals(full.nodeId, fullCopy.nodeId);
+        assertEquals(full.completeness, fullCopy.completeness);
+        assertArrayEquals(full.summaryWriters, fullCopy.summaryWriters);
+        assertArrayEquals(full.summaryPositions, fullCopy.summaryPositions);
+        assertArrayEquals(full.recentIds, fullCopy.recentIds);
+        assertNewsList(recent, fullCopy.recent);
+        assertEquals(interest, fullCopy.interest);
+        assertTrue(fullCopy.interest.matches(4));
+    }
+
+    private static News news(int writer, int seq, long logPosition) {
+        return new News(News.newsId(writer, seq), "news " + writer + "/" + seq, 1466000000000L + seq, 5,
+                logPosition, Collections.<ChunkId>emptyList(), seq % 3);
+    }
+
+    private static List<News> newsList(int size) {
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            news.add(news(i % 7, i, i % 2 == 0 ? News.logPosition(1, i) : -1));
+        }
+        return news;
+    }
+
+    private static NewsWatermarks sampleWatermarks() {
+        NewsWatermarks watermarks = new NewsWatermarks();
+        for (int seq = 0; seq < 200; seq++) {
+            watermarks.add(News.newsId(1, seq));
+        }
+        // beyond the window: 0..3 and 300 seen, the rest is a gap
+        for (int seq = 0; seq < 4; seq++) {
+            watermarks.add(News.newsId(2, seq));
+        }
+        watermarks.add(News.newsId(2, 300));
+        watermarks.add(News.newsId(3, 5));
+        return watermarks;
+    }
+
+    private static void assertNews(News expected, News actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getTtl(), actual.getTtl());
+        assertEquals(expected.getLogPosition(), actual.getLogPosition());
+        assertEquals(expected.getTopic(), actual.getTopic());
+        assertEquals(expected.getChunks(), actual.getChunks());
+    }
+
+    private static void assertNewsList(List<News> expected, List<News> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertNews(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertSmaller(int before, int after) {
+        assertTrue("encoded in " + after + " bytes, " + before + " before", after < before);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.serializer;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.util.ChunkId;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+import se.sics.ktoolbox.util.network.KAddress;
+import se.sics.ktoolbox.util.network.basic.BasicAddress;
+import se.sics.ktoolbox.util.network.nat.NatAwareAddressImpl;
+import se.sics.ktoolbox.util.setup.BasicSerializerSetup;
+
+/**
+ * Registers the serializers the way SimLauncher does and round-trips messages
+ * through the Kompics registry, so a missing registration fails as well.
+ */
+public class SerializerSupport {
+
+    //same as SimLauncher
+    public static final int NEWS_STARTING_ID = 200;
+    private static boolean registered = false;
+
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        // identifiers and addresses, ahead of the news ids
+        BasicSerializerSetup.registerBasicSerializers(0);
+        NewsSerializerSetup.registerSerializers(NEWS_STARTING_ID);
+        registered = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T roundTrip(T msg) {
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(msg, buf);
+        T copy = (T) Serializers.fromBinary(buf, Optional.absent());
+        if (buf.readableBytes() > 0) {
+            throw new AssertionError(buf.readableBytes() + " bytes left after decoding " + msg);
+        }
+        buf.release();
+        return copy;
+    }
+
+    /**
+     * @return encoded size of the message, serializer id included
+     */
+    public static int size(Object msg) {
+        ByteBuf buf = Unpooled.buffer();
+        Serializers.toBinary(msg, buf);
+        int size = buf.readableBytes();
+        buf.release();
+        return size;
+    }
+
+    /**
+     * Size of the news in a plain fixed width layout (DataOutput style, modified
+     * UTF-8 title), what the varint encoding is measured against.
+     */
+    public static int fixedWidthSize(News news) {
+        int title = news.getTitle() == null ? 0 : news.getTitle().length();
+        //id, timestamp, ttl, log position, topic, title length + chars, chunk count + digests
+        return 8 + 8 + 4 + 8 + 4 + 2 + title + 4 + news.getChunks().size() * ChunkId.LENGTH;
+    }
+
+    public static KAddress address(int id) {
+        try {
+            return NatAwareAddressImpl.open(new BasicAddress(InetAddress.getByName("193.0.0." + id), 30000,
+                    new IntIdentifier(id)));
+        } catch (UnknownHostException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InterestFilterTest {
+
+    @Test
+    public void subscribedTopicsMatch() {
+        Set<Integer> topics = new HashSet<>(Arrays.asList(1, 7, 42));
+        InterestFilter filter = InterestFilter.of(topics, 100, 3);
+        assertEquals(2, filter.words().length);
+        for (int topic : topics) {
+            assertTrue(filter.matches(topic));
+        }
+    }
+
+    @Test
+    public void emptyFilterMatchesEverything() {
+        assertTrue(InterestFilter.ALL.matches(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroBitsRejected() {
+        InterestFilter.of(Collections.singleton(1), 0, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBitsRejected() {
+        InterestFilter.of(Collections.singleton(1), -64, 3);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import se.kth.news.core.news.CompressedNews;
+import se.kth.news.core.news.News;
+import se.kth.news.core.news.NewsBatch;
+import se.sics.ktoolbox.util.identifiable.Identifier;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NewsCompressorTest {
+
+    private static final Identifier PEER = new IntIdentifier(2);
+
+    @Test
+    public void dictionaryInlinedOnceThenAgainAfterAMiss() {
+        NewsCompressor sender = primedCompressor();
+        CompressedNews first = sender.compress(PEER, batch(0));
+        assertNotNull(first.dictionary);
+        CompressedNews second = sender.compress(PEER, batch(100));
+        assertNull(second.dictionary);
+
+        // the first message was lost: the receiver cannot read the second one
+        NewsCompressor receiver = new NewsCompressor(0, 16);
+        assertNull(receiver.decompress(second));
+        assertTrue(receiver.missingDictionary(second));
+
+        sender.dictionaryMissed(PEER, second.dictionaryId);
+        CompressedNews third = sender.compress(PEER, batch(200));
+        assertNotNull(third.dictionary);
+        NewsBatch decoded = (NewsBatch) receiver.decompress(third);
+        assertEquals(batch(200).news.size(), decoded.news.size());
+        assertFalse(receiver.missingDictionary(second));
+    }
+
+    @Test
+    public void inlineDictionaryCountsInTheCompressedSize() {
+        NewsCompressor sender = primedCompressor();
+        CompressedNews msg = sender.compress(PEER, batch(0));
+        assertEquals(msg.payload.length + msg.dictionary.length, sender.compressedBytes);
+        assertTrue(sender.compressedBytes < sender.rawBytes);
+    }
+
+    @Test
+    public void rawLengthIsCheckedBeforeAllocating() {
+        NewsCompressor receiver = new NewsCompressor(0, 16);
+        CompressedNews bogus = new CompressedNews(0, null, Integer.MAX_VALUE, new byte[]{1, 2, 3});
+        assertNull(receiver.decompress(bogus));
+        assertNull(receiver.decompress(new CompressedNews(0, null, -1, new byte[]{1, 2, 3})));
+    }
+
+    private static NewsCompressor primedCompressor() {
+        NewsCompressor compressor = new NewsCompressor(0, 16);
+        for (News news : batch(0).news) {
+            compressor.observeTitle(news.getTitle());
+        }
+        return compressor;
+    }
+
+    private static NewsBatch batch(int firstSeq) {
+        List<News> news = new ArrayList<>();
+        for (int seq = firstSeq; seq < firstSeq + 16; seq++) {
+            news.add(new News(News.newsId(1, seq), "market update from the northern region, part " + seq,
+                    1466000000000L + seq, 5, -1, Collections.<ChunkId>emptyList(), 0));
+        }
+        return new NewsBatch(news);
+    }
+}
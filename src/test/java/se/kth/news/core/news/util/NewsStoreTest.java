@@ -0,0 +1,57 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import org.junit.Test;
+import se.kth.news.core.news.News;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NewsStoreTest {
+
+    @Test
+    public void oldItemArrivingLateIsEvictedByAge() {
+        NewsStore store = new NewsStore(100, 1000);
+        store.add(news(1, 1900), 2000);
+        store.add(news(2, 1950), 2000);
+        // caught up from a peer, published long before the others
+        store.add(news(3, 500), 2000);
+        assertEquals(2, store.size());
+        for (News news : store) {
+            assertTrue(news.getTimestamp() >= 1900);
+        }
+        assertTrue(store.between(0, 1000, 10).isEmpty());
+        assertEquals(2, store.recent(10).size());
+    }
+
+    @Test
+    public void sizeBoundEvictsTheEarliestArrivals() {
+        NewsStore store = new NewsStore(2, 1000);
+        store.add(news(1, 1000), 1000);
+        store.add(news(2, 900), 1000);
+        store.add(news(3, 950), 1000);
+        assertEquals(2, store.size());
+        assertEquals(2, store.fromWriter(1, 0, 10).size());
+        assertEquals(News.newsId(1, 2), store.recent(2).get(0).getId());
+    }
+
+    private static News news(int seq, long timestamp) {
+        return new News(News.newsId(1, seq), "news " + seq, timestamp, 5);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import org.junit.Test;
+import se.kth.news.core.news.News;
+import se.sics.ktoolbox.util.identifiable.basic.IntIdentifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NewsWatermarksTest {
+
+    private static final int WRITER = 4;
+
+    @Test
+    public void recentItemsRankAboveOldOnes() {
+        // A got many old items, B fewer but all the recent ones
+        NewsWatermarks a = range(0, 89);
+        NewsWatermarks b = range(20, 99);
+        assertTrue(a.count() > b.count());
+        assertTrue(b.completeness() > a.completeness());
+
+        NewsView viewA = view(1, a);
+        NewsView viewB = view(2, b);
+        assertTrue(new NewsViewComparator().compare(viewB, viewA) > 0);
+        // moving from A's state to B's is not a loss of rank
+        NewsViewGradientFilter filter = new NewsViewGradientFilter();
+        assertFalse(filter.cleanOldView(viewB, viewA));
+        assertTrue(filter.cleanOldView(viewA, viewB));
+    }
+
+    @Test
+    public void recentHolesLowerThePosition() {
+        NewsWatermarks full = range(0, 99);
+        // every other item missed, the latest one received
+        NewsWatermarks sparse = new NewsWatermarks();
+        for (int seq = 0; seq < 100; seq += 2) {
+            sparse.add(News.newsId(WRITER, seq));
+        }
+        sparse.add(News.newsId(WRITER, 99));
+        assertEquals(100, full.position(WRITER));
+        assertTrue(sparse.position(WRITER) < full.position(WRITER));
+        assertEquals(0, new NewsWatermarks().position(WRITER));
+    }
+
+    private static NewsWatermarks range(int first, int last) {
+        NewsWatermarks watermarks = new NewsWatermarks();
+        for (int seq = first; seq <= last; seq++) {
+            watermarks.add(News.newsId(WRITER, seq));
+        }
+        return watermarks;
+    }
+
+    private static NewsView view(int nodeId, NewsWatermarks watermarks) {
+        return new NewsView(new IntIdentifier(nodeId), watermarks.count(), watermarks.completeness(), new int[0], new int[0]);
+    }
+}
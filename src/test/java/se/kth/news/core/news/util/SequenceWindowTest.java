@@ -0,0 +1,68 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.core.news.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SequenceWindowTest {
+
+    @Test
+    public void jumpedSeqsStayPullable() {
+        SequenceWindow sw = new SequenceWindow();
+        sw.add(0);
+        sw.add(100);
+        assertEquals(36, sw.contiguous());
+        assertFalse(sw.contains(5));
+        assertEquals(36, sw.missing());
+        assertTrue(sw.add(5));
+        assertFalse(sw.add(5));
+        assertEquals(35, sw.missing());
+    }
+
+    @Test
+    public void gapCountIsCapped() {
+        SequenceWindow sw = new SequenceWindow();
+        // every other seq lost, over a long stream
+        for (int seq = 0; seq < 10000; seq += 2) {
+            sw.add(seq);
+        }
+        assertTrue(sw.gaps().size() <= SequenceWindow.MAX_GAPS);
+        // the given up seqs count as seen, the recent ones can still be pulled
+        assertTrue(sw.contains(1));
+        int recent = sw.gaps().lastKey();
+        assertFalse(sw.contains(recent));
+        assertTrue(sw.add(recent));
+    }
+
+    @Test
+    public void gapsBehindTheHorizonAreDropped() {
+        SequenceWindow sw = new SequenceWindow();
+        sw.add(0);
+        sw.add(100);
+        assertEquals(1, sw.gaps().size());
+        sw.add(100 + 2 * SequenceWindow.GAP_HORIZON);
+        assertTrue(sw.contains(5));
+        // only the range jumped over last is left
+        assertEquals(1, sw.gaps().size());
+        assertTrue(sw.gaps().firstKey() > 100);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * 2016 Royal Institute of Technology (KTH)
+ *
+ * LSelector is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.kth.news.play;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import se.kth.news.core.news.serializer.SerializerSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static se.kth.news.core.news.serializer.SerializerSupport.roundTrip;
+import static se.kth.news.core.news.serializer.SerializerSupport.size;
+
+public class PlaySerializerTest {
+
+    @BeforeClass
+    public static void register() {
+        SerializerSupport.register();
+    }
+
+    @Test
+    public void pingPong() {
+        assertTrue(roundTrip(new Ping()) instanceof Ping);
+        assertTrue(roundTrip(new Pong()) instanceof Pong);
+    }
+
+    // nothing but the serializer id goes on the wire
+    @Test
+    public void emptyBody() {
+        assertEquals(size(new Ping()), size(new Pong()));
+        assertTrue(size(new Ping()) <= 5);
+    }
+}